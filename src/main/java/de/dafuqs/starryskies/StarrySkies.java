@@ -3,12 +3,16 @@ package de.dafuqs.starryskies;
 import de.dafuqs.starryskies.advancements.ProximityAdvancementCheckEvent;
 import de.dafuqs.starryskies.advancements.StarryAdvancementCriteria;
 import de.dafuqs.starryskies.commands.ClosestSpheroidCommand;
+import de.dafuqs.starryskies.commands.PregenCommand;
 import de.dafuqs.starryskies.configs.StarrySkyConfig;
 import de.dafuqs.starryskies.data_loaders.*;
+import de.dafuqs.starryskies.dimension.PredictiveSystemLoader;
 import de.dafuqs.starryskies.dimension.SpheroidDimensionType;
 import de.dafuqs.starryskies.dimension.StarrySkyBiomes;
 import de.dafuqs.starryskies.dimension.StarrySkyChunkGenerator;
 import de.dafuqs.starryskies.dimension.StarrySkyDimension;
+import de.dafuqs.starryskies.dimension.SystemGenerator;
+import de.dafuqs.starryskies.dimension.SystemPregenerator;
 import de.dafuqs.starryskies.spheroids.DecoratorFeatures;
 import de.dafuqs.starryskies.spheroids.SpheroidDecoratorTypes;
 import de.dafuqs.starryskies.spheroids.SpheroidTypes;
@@ -16,6 +20,7 @@ import me.shedaniel.autoconfig.AutoConfig;
 import me.shedaniel.autoconfig.serializer.JanksonConfigSerializer;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
@@ -72,6 +77,7 @@ public class StarrySkies implements ModInitializer {
 		
 		CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
 			ClosestSpheroidCommand.register(dispatcher);
+			PregenCommand.register(dispatcher);
 		});
 		
 		// triggers everytime a world is loaded
@@ -88,6 +94,24 @@ public class StarrySkies implements ModInitializer {
 		
 		ServerTickEvents.END_SERVER_TICK.register(new ProximityAdvancementCheckEvent());
 		
+		PredictiveSystemLoader predictiveSystemLoader = new PredictiveSystemLoader();
+		ServerTickEvents.END_SERVER_TICK.register(predictiveSystemLoader);
+		ServerLifecycleEvents.SERVER_STOPPING.register(predictiveSystemLoader);
+		
+		ServerTickEvents.END_SERVER_TICK.register(SystemPregenerator.INSTANCE);
+		ServerLifecycleEvents.SERVER_STARTED.register(SystemPregenerator.INSTANCE);
+		ServerLifecycleEvents.SERVER_STOPPING.register(SystemPregenerator.INSTANCE);
+		
+		// blocks decorators left for chunks that did not get decorated yet are not saved with the world
+		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+			for (SystemGenerator systemGenerator : SystemGenerator.systemGeneratorMap.values()) {
+				long dropped = systemGenerator.getPendingDecorationWrites().dropAll();
+				if (dropped > 0) {
+					log(INFO, "Dropped " + dropped + " decoration blocks waiting for chunks that were not decorated yet");
+				}
+			}
+		});
+		
 		log(INFO, "Finished loading.");
 	}
 	
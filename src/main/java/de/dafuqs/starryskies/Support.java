@@ -1,5 +1,6 @@
 package de.dafuqs.starryskies;
 
+import de.dafuqs.starryskies.dimension.SpheroidSystem;
 import de.dafuqs.starryskies.dimension.SystemGenerator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.entity.player.PlayerEntity;
@@ -9,6 +10,8 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.math.random.CheckedRandom;
+import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.math.random.Random;
 import net.minecraft.world.WorldAccess;
 import org.jetbrains.annotations.Contract;
@@ -17,6 +20,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,6 +37,9 @@ public class Support {
 		}
 	}
 	
+	// the rounded distance for each squared distance. Covers everything inside a cube with a "radius" of 64 blocks
+	private static volatile int[] roundedDistances = computeRoundedDistances(new int[0], 3 * 64 * 64 + 1);
+	
 	private static final List<Point> aroundPoints = new ArrayList<>() {{
 		add(new Point(0, 0));
 		add(new Point(1, -1));
@@ -52,19 +59,19 @@ public class Support {
 		
 		SystemGenerator systemGenerator = SystemGenerator.getSystemGeneratorOfWorld(serverPlayerEntity.getEntityWorld().getRegistryKey());
 		if (systemGenerator != null) {
-			List<Spheroid> localSystem = systemGenerator.getSystemAtChunkPos(playerPosBlock.getX() / 16, playerPosBlock.getZ() / 16);
+			SpheroidSystem localSystem = systemGenerator.getSystemAtChunkPos(playerPosBlock.getX() / 16, playerPosBlock.getZ() / 16);
 			
-			Spheroid closestSpheroid = null;
+			int closestSpheroid = -1;
 			double currentMinDistance = Double.MAX_VALUE;
-			for (Spheroid p : localSystem) {
-				double currDist = playerPosBlock.getSquaredDistance(p.getPosition());
+			for (int i = 0; i < localSystem.size(); i++) {
+				double currDist = localSystem.getSquaredDistance(i, playerPosBlock);
 				if (currDist < currentMinDistance) {
 					currentMinDistance = currDist;
-					closestSpheroid = p;
+					closestSpheroid = i;
 				}
 			}
 			
-			return Optional.of(new SpheroidDistance(closestSpheroid, currentMinDistance));
+			return Optional.of(new SpheroidDistance(closestSpheroid == -1 ? null : localSystem.getSpheroid(closestSpheroid), currentMinDistance));
 		} else {
 			return Optional.empty();
 		}
@@ -73,24 +80,34 @@ public class Support {
 	public static @Nullable SpheroidDistance getClosestSpheroid3x3(@NotNull ServerWorld serverWorld, BlockPos position, Identifier spheroidIdentifier) {
 		SystemGenerator spheroidGenerator = SystemGenerator.getSystemGeneratorOfWorld(serverWorld.getRegistryKey());
 		
-		Spheroid closestSpheroid = null;
+		SpheroidSystem closestSystem = null;
+		int closestSpheroid = -1;
 		double currentMinDistance = Double.MAX_VALUE;
 		for (Point currentPoint : aroundPoints) {
 			Point systemPos = getSystemCoordinateFromChunkCoordinate(position.getX() / 16, position.getZ() / 16);
 			
-			List<Spheroid> currentSystem = spheroidGenerator.getSystemAtPoint(new Point(systemPos.x + currentPoint.x, systemPos.y + currentPoint.y));
-			for (Spheroid p : currentSystem) {
-				if (p.getTemplate().getID().equals(spheroidIdentifier)) {
-					double currDist = position.getSquaredDistance(p.getPosition());
+			SpheroidSystem currentSystem = spheroidGenerator.getSystemAtPoint(new Point(systemPos.x + currentPoint.x, systemPos.y + currentPoint.y));
+			
+			// compare the interned templates once instead of each spheroid's id
+			Spheroid.Template[] templates = currentSystem.getTemplates();
+			boolean[] matchingTemplates = new boolean[templates.length];
+			for (int i = 0; i < templates.length; i++) {
+				matchingTemplates[i] = templates[i].getID().equals(spheroidIdentifier);
+			}
+			
+			for (int i = 0; i < currentSystem.size(); i++) {
+				if (matchingTemplates[currentSystem.getTemplateIndex(i)]) {
+					double currDist = currentSystem.getSquaredDistance(i, position);
 					if (currDist < currentMinDistance) {
 						currentMinDistance = currDist;
-						closestSpheroid = p;
+						closestSystem = currentSystem;
+						closestSpheroid = i;
 					}
 				}
 			}
 			
-			if (closestSpheroid != null) {
-				return new SpheroidDistance(closestSpheroid, currentMinDistance);
+			if (closestSystem != null) {
+				return new SpheroidDistance(closestSystem.getSpheroid(closestSpheroid), currentMinDistance);
 			}
 		}
 		
@@ -152,6 +169,23 @@ public class Support {
 		return lowest + random.nextFloat() * (highest - lowest);
 	}
 	
+	/**
+	 * Returns the internal state of a ChunkRandom that is backed by a CheckedRandom
+	 * A random restored from that state using restoreRandom() continues with the exact same sequence
+	 *
+	 * @param random The random to get the state of
+	 * @return The state of the random
+	 */
+	public static long getRandomState(@NotNull ChunkRandom random) {
+		return ((CheckedRandom) random.baseRandom).seed.get();
+	}
+	
+	public static @NotNull ChunkRandom restoreRandom(long state) {
+		CheckedRandom baseRandom = new CheckedRandom(0);
+		baseRandom.seed.set(state);
+		return new ChunkRandom(baseRandom);
+	}
+	
 	public static double getDistance(double x1, double y1, double z1, double x2, double y2, double z2) {
 		return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2) + (z1 - z2) * (z1 - z2));
 	}
@@ -160,6 +194,70 @@ public class Support {
 		return getDistance(blockPos1.getX(), blockPos1.getY(), blockPos1.getZ(), blockpos2.getX(), blockpos2.getY(), blockpos2.getZ());
 	}
 	
+	/**
+	 * Same as Math.round(getDistance()) between two block positions that are dx, dy and dz apart,
+	 * but looks the result up by the squared distance instead of calculating a square root.
+	 * Used for every single block of a spheroid
+	 */
+	public static int getRoundedDistance(int dx, int dy, int dz) {
+		return getRoundedDistance(dx * dx + dy * dy + dz * dz);
+	}
+	
+	public static int getRoundedDistance(int squaredDistance) {
+		int[] table = roundedDistances;
+		if (squaredDistance >= table.length) {
+			table = growRoundedDistances(squaredDistance);
+		}
+		return table[squaredDistance];
+	}
+	
+	/**
+	 * How far the blocks with a rounded distance of at most maxDistance reach up and down
+	 * from the center of a spheroid in a single column.
+	 * Since the rounded distance only grows with |dy| these blocks are a single range in each column
+	 *
+	 * @param squaredColumnDistance dx * dx + dz * dz of the column
+	 * @param maxDistance           the max rounded distance, same as "getRoundedDistance(...) <= maxDistance"
+	 * @return the max |dy| of those blocks or -1, if there are none in that column
+	 */
+	public static int getColumnHalfHeight(int squaredColumnDistance, float maxDistance) {
+		int maxRoundedDistance = (int) Math.floor(maxDistance);
+		if (maxRoundedDistance < 0) {
+			return -1;
+		}
+		// round(sqrt(s)) <= n is the same as s <= n * (n + 1), without any floating point involved
+		long remaining = (long) maxRoundedDistance * (maxRoundedDistance + 1) - squaredColumnDistance;
+		if (remaining < 0) {
+			return -1;
+		}
+		int halfHeight = (int) Math.sqrt(remaining);
+		while ((long) halfHeight * halfHeight > remaining) {
+			halfHeight--;
+		}
+		while ((long) (halfHeight + 1) * (halfHeight + 1) <= remaining) {
+			halfHeight++;
+		}
+		return halfHeight;
+	}
+	
+	// spheroids bigger than the initial table are rare. Those grow it once
+	private static synchronized int[] growRoundedDistances(int squaredDistance) {
+		int[] table = roundedDistances;
+		if (squaredDistance >= table.length) {
+			table = computeRoundedDistances(table, Math.max(squaredDistance + 1, table.length * 2));
+			roundedDistances = table;
+		}
+		return table;
+	}
+	
+	private static int @NotNull [] computeRoundedDistances(int @NotNull [] existing, int size) {
+		int[] table = Arrays.copyOf(existing, size);
+		for (int i = existing.length; i < size; i++) {
+			table[i] = (int) Math.round(Math.sqrt(i));
+		}
+		return table;
+	}
+	
 	public static boolean isBlockPosInChunkPos(@NotNull ChunkPos chunkPos, @NotNull BlockPos blockPos) {
 		return (blockPos.getX() >= chunkPos.getStartX()
 				&& blockPos.getX() < chunkPos.getStartX() + 16
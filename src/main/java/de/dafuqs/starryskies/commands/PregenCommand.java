@@ -0,0 +1,78 @@
+package de.dafuqs.starryskies.commands;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.dimension.SystemPregenerator;
+import net.minecraft.command.argument.DimensionArgumentType;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+
+import java.awt.*;
+
+public class PregenCommand {
+	
+	public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+		dispatcher.register(CommandManager.literal("starryskies_pregen")
+				.requires((source) -> source.hasPermissionLevel(StarrySkies.CONFIG.pregenCommandRequiredPermissionLevel))
+				.then(CommandManager.literal("start")
+						.then(CommandManager.argument("dimension", DimensionArgumentType.dimension())
+								.then(CommandManager.argument("radius", IntegerArgumentType.integer(0, 64))
+										.executes((context -> executeStart(context.getSource(), DimensionArgumentType.getDimensionArgument(context, "dimension"), IntegerArgumentType.getInteger(context, "radius")))))))
+				.then(CommandManager.literal("stop")
+						.executes((context -> executeStop(context.getSource()))))
+				.then(CommandManager.literal("resume")
+						.executes((context -> executeResume(context.getSource()))))
+				.then(CommandManager.literal("status")
+						.executes((context -> executeStatus(context.getSource())))));
+	}
+	
+	private static int executeStart(ServerCommandSource source, ServerWorld world, int radius) {
+		if (!StarrySkies.isStarryWorld(world.getRegistryKey())) {
+			source.sendError(Text.literal(world.getRegistryKey().getValue() + " is not a Starry Skies dimension"));
+			return 0;
+		}
+		
+		// centered on the system the caller is in. From other dimensions or the console on the center of the world
+		Point centerSystem = new Point(0, 0);
+		if (source.getWorld() == world) {
+			BlockPos position = new BlockPos(source.getPosition());
+			centerSystem = Support.getSystemCoordinateFromChunkCoordinate(position.getX() >> 4, position.getZ() >> 4);
+		}
+		
+		if (!SystemPregenerator.INSTANCE.start(world, centerSystem, radius)) {
+			source.sendError(Text.literal("There is a pre-generation running already. Stop it first using '/starryskies_pregen stop'"));
+			return 0;
+		}
+		source.sendFeedback(Text.literal("Started pre-generating " + (2 * radius + 1) + "x" + (2 * radius + 1) + " systems around system " + centerSystem.x + "," + centerSystem.y + ". " + SystemPregenerator.INSTANCE.getStatus()), true);
+		return 1;
+	}
+	
+	private static int executeStop(ServerCommandSource source) {
+		if (!SystemPregenerator.INSTANCE.stop()) {
+			source.sendError(Text.literal("There is no pre-generation running"));
+			return 0;
+		}
+		source.sendFeedback(Text.literal("Paused pre-generation. Continue it using '/starryskies_pregen resume'. " + SystemPregenerator.INSTANCE.getStatus()), true);
+		return 1;
+	}
+	
+	private static int executeResume(ServerCommandSource source) {
+		if (!SystemPregenerator.INSTANCE.resume()) {
+			source.sendError(Text.literal(SystemPregenerator.INSTANCE.isRunning() ? "The pre-generation is running already" : "There is no pre-generation to resume"));
+			return 0;
+		}
+		source.sendFeedback(Text.literal("Resumed pre-generation. " + SystemPregenerator.INSTANCE.getStatus()), true);
+		return 1;
+	}
+	
+	private static int executeStatus(ServerCommandSource source) {
+		source.sendFeedback(Text.literal(SystemPregenerator.INSTANCE.getStatus()), false);
+		return SystemPregenerator.INSTANCE.hasTask() ? 1 : 0;
+	}
+	
+}
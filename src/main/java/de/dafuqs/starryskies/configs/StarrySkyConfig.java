@@ -68,6 +68,14 @@ public class StarrySkyConfig implements ConfigData {
 			Default: 0""")
 	public int sphereCommandRequiredPermissionLevel = 0;
 	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("GENERAL")
+	@Comment(value = """
+			The '/starryskies_pregen' command pre-generates the chunks of the Starry dimensions
+			
+			Default: 2""")
+	public int pregenCommandRequiredPermissionLevel = 2;
+	
 	@ConfigEntry.Gui.PrefixText
 	@ConfigEntry.Gui.Tooltip()
 	@ConfigEntry.Category("SYSTEM GENERATION")
@@ -81,6 +89,85 @@ public class StarrySkyConfig implements ConfigData {
 			Default: 50""")
 	public int systemSizeChunks = 50;
 	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			How many generated systems are kept in memory per dimension.
+			When the cache is full the least recently used system is dropped
+			and has to be generated again once it is needed.
+			Default: 32""")
+	public int systemCacheSize = 32;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			After how many seconds without being accessed a system is dropped from memory.
+			0 keeps systems until the cache is full.
+			Default: 600""")
+	public int systemCacheExpirationSeconds = 600;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			Stores the layout of each generated system in the world save,
+			so systems do not have to be generated again after a restart.
+			Systems are generated again when the system generation settings
+			or the used spheroids change.
+			Default: true""")
+	public boolean persistSystems = true;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			Generates the systems players are heading towards in the background,
+			before chunks in them are generated. Reduces the lag spike
+			when crossing into a system that was not generated yet.
+			Default: true""")
+	public boolean predictiveSystemLoading = true;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			How many seconds ahead the movement of players is predicted
+			for loading systems in the background
+			Default: 10""")
+	public int predictiveSystemLoadingSeconds = 10;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			Checks the spheroids of a new system for collisions on multiple threads.
+			Systems still end up exactly the same as when generated on a single thread.
+			Mostly useful for high sphere densities on machines with many cores.
+			Default: false""")
+	public boolean parallelSystemGeneration = false;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			How many spheroid shapes are kept in memory.
+			Spheroids of the same size and layers share their shape, so
+			each one only has to be calculated once instead of for every chunk.
+			Default: 64""")
+	public int spheroidStampCacheSize = 64;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			How many chunks '/starryskies_pregen' generates at the same time.
+			Higher values use more worldgen threads, but also more memory.
+			Default: 8""")
+	public int pregenChunksInParallel = 8;
+	
+	@ConfigEntry.Gui.Tooltip()
+	@ConfigEntry.Category("SYSTEM GENERATION")
+	@Comment(value = """
+			'/starryskies_pregen' does not request new chunks while the average
+			server tick takes longer than this many milliseconds.
+			50 means it only slows down once the server can not keep up with 20 TPS.
+			Default: 40""")
+	public int pregenMaxTickMilliseconds = 40;
+	
 	@ConfigEntry.Gui.Tooltip()
 	@ConfigEntry.Category("SYSTEM GENERATION")
 	@Comment(value = """
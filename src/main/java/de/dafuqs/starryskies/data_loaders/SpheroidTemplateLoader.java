@@ -16,8 +16,10 @@ import net.minecraft.util.JsonHelper;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.profiler.Profiler;
 import org.apache.logging.log4j.Level;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -27,6 +29,8 @@ public class SpheroidTemplateLoader extends JsonDataLoader implements Identifiab
 	public static final SpheroidTemplateLoader INSTANCE = new SpheroidTemplateLoader();
 	
 	private static LinkedHashMap<Identifier, LinkedHashMap<Spheroid.Template, Float>> WEIGHTED_SPHEROID_TYPES;
+	private static Map<Identifier, Spheroid.Template> TEMPLATES = new HashMap<>();
+	private static int MAX_TEMPLATE_SIZE = 0;
 	
 	
 	public static Identifier STARTER_OVERWORLD_ID = StarrySkies.locate("spawn/overworld");
@@ -44,6 +48,7 @@ public class SpheroidTemplateLoader extends JsonDataLoader implements Identifiab
 	protected void apply(Map<Identifier, JsonElement> prepared, ResourceManager manager, Profiler profiler) {
 		// initialize list with empty LinkedHashMaps
 		WEIGHTED_SPHEROID_TYPES = new LinkedHashMap<>();
+		Map<Identifier, Spheroid.Template> templates = new HashMap<>();
 		for (Identifier spheroidDistributionType : SpheroidDistributionLoader.getAll()) {
 			WEIGHTED_SPHEROID_TYPES.put(spheroidDistributionType, new LinkedHashMap<>());
 		}
@@ -65,6 +70,7 @@ public class SpheroidTemplateLoader extends JsonDataLoader implements Identifiab
 					}
 					return;
 				}
+				templates.put(identifier, template);
 				
 				Identifier generationGroup = null;
 				float generationWeight = 0;
@@ -96,6 +102,8 @@ public class SpheroidTemplateLoader extends JsonDataLoader implements Identifiab
 				e.printStackTrace();
 			}
 		});
+		TEMPLATES = templates;
+		MAX_TEMPLATE_SIZE = templates.values().stream().mapToInt(Spheroid.Template::getMaxSize).max().orElse(0);
 	}
 	
 	@Override
@@ -108,4 +116,15 @@ public class SpheroidTemplateLoader extends JsonDataLoader implements Identifiab
 		return Support.getWeightedRandom(WEIGHTED_SPHEROID_TYPES.get(distributionType), systemRandom);
 	}
 	
+	public static @Nullable Spheroid.Template getTemplate(Identifier identifier) {
+		return TEMPLATES.get(identifier);
+	}
+	
+	/**
+	 * @return The biggest radius any of the loaded spheroids can be generated with
+	 */
+	public static int getMaxTemplateSize() {
+		return MAX_TEMPLATE_SIZE;
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package de.dafuqs.starryskies.dimension;
+
+import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.Support;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.apache.logging.log4j.Level.DEBUG;
+import static org.apache.logging.log4j.Level.WARN;
+
+/**
+ * Watches the players in the starry dimensions and generates the systems
+ * they are heading towards in the background, before any chunk in them is requested.
+ * That way a player crossing a system border (for example with an elytra) does not
+ * stall the worldgen thread while the whole new system is generated
+ */
+public class PredictiveSystemLoader implements ServerTickEvents.EndTick, ServerLifecycleEvents.ServerStopping {
+	
+	private final static int checkEveryXTicks = 20;
+	// a prediction never spans more than this many systems per axis
+	private final static int maxSystemsAheadPerAxis = 1;
+	
+	private int tickCounter;
+	private final Map<UUID, Vec3d> lastPlayerPositions = new HashMap<>();
+	private final Map<SystemGenerator, Set<Point>> queuedSystems = new ConcurrentHashMap<>();
+	private ExecutorService executor;
+	
+	@Override
+	public void onEndTick(MinecraftServer minecraftServer) {
+		tickCounter++;
+		if (tickCounter % checkEveryXTicks != 0) {
+			return;
+		}
+		tickCounter = 0;
+		if (!StarrySkies.CONFIG.predictiveSystemLoading) {
+			lastPlayerPositions.clear();
+			return;
+		}
+		
+		Map<UUID, Vec3d> currentPlayerPositions = new HashMap<>();
+		for (ServerPlayerEntity serverPlayerEntity : minecraftServer.getPlayerManager().getPlayerList()) {
+			if (!StarrySkies.inStarryWorld(serverPlayerEntity)) {
+				continue;
+			}
+			
+			Vec3d position = serverPlayerEntity.getPos();
+			currentPlayerPositions.put(serverPlayerEntity.getUuid(), position);
+			
+			// the velocity the server knows of client controlled players is not reliable
+			// use the distance they moved since the last check instead
+			Vec3d lastPosition = lastPlayerPositions.get(serverPlayerEntity.getUuid());
+			if (lastPosition != null) {
+				Vec3d predictedPosition = position.add(position.subtract(lastPosition).multiply(StarrySkies.CONFIG.predictiveSystemLoadingSeconds * 20D / checkEveryXTicks));
+				SystemGenerator systemGenerator = SystemGenerator.getSystemGeneratorOfWorld(serverPlayerEntity.getEntityWorld().getRegistryKey());
+				if (systemGenerator != null) {
+					queueSystemsBetween(systemGenerator, position, predictedPosition);
+				}
+			}
+		}
+		
+		lastPlayerPositions.clear();
+		lastPlayerPositions.putAll(currentPlayerPositions);
+	}
+	
+	@Override
+	public void onServerStopping(MinecraftServer server) {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		queuedSystems.clear();
+		lastPlayerPositions.clear();
+	}
+	
+	private void queueSystemsBetween(@NotNull SystemGenerator systemGenerator, @NotNull Vec3d position, @NotNull Vec3d predictedPosition) {
+		Point currentSystem = Support.getSystemCoordinateFromChunkCoordinate((int) Math.floor(position.x) >> 4, (int) Math.floor(position.z) >> 4);
+		Point predictedSystem = Support.getSystemCoordinateFromChunkCoordinate((int) Math.floor(predictedPosition.x) >> 4, (int) Math.floor(predictedPosition.z) >> 4);
+		
+		// when moving diagonally the systems at the side of the path get crossed, too
+		int minX = Math.max(Math.min(currentSystem.x, predictedSystem.x), currentSystem.x - maxSystemsAheadPerAxis);
+		int maxX = Math.min(Math.max(currentSystem.x, predictedSystem.x), currentSystem.x + maxSystemsAheadPerAxis);
+		int minZ = Math.max(Math.min(currentSystem.y, predictedSystem.y), currentSystem.y - maxSystemsAheadPerAxis);
+		int maxZ = Math.min(Math.max(currentSystem.y, predictedSystem.y), currentSystem.y + maxSystemsAheadPerAxis);
+		
+		for (int x = minX; x <= maxX; x++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				queueSystem(systemGenerator, new Point(x, z));
+			}
+		}
+	}
+	
+	private void queueSystem(@NotNull SystemGenerator systemGenerator, @NotNull Point systemPoint) {
+		Set<Point> queuedSystemsOfGenerator = queuedSystems.computeIfAbsent(systemGenerator, generator -> ConcurrentHashMap.newKeySet());
+		if (systemGenerator.isSystemCached(systemPoint) || !queuedSystemsOfGenerator.add(systemPoint)) {
+			return;
+		}
+		
+		StarrySkies.log(DEBUG, "Queueing predictive generation of system at " + systemPoint.x + "," + systemPoint.y);
+		getExecutor().execute(() -> {
+			try {
+				systemGenerator.getSystemAtPoint(systemPoint);
+			} catch (RuntimeException e) {
+				StarrySkies.log(WARN, "Predictive generation of system at " + systemPoint.x + "," + systemPoint.y + " failed: " + e);
+			} finally {
+				queuedSystemsOfGenerator.remove(systemPoint);
+			}
+		});
+	}
+	
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Starry Skies System Loader");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			});
+		}
+		return executor;
+	}
+	
+}
@@ -0,0 +1,226 @@
+package de.dafuqs.starryskies.dimension;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decides which candidate spheroids of a system get placed, checking them for collisions on multiple threads.
+ * The result is exactly the same as placing the candidates one after another,
+ * each one only if it does not collide with any of the already placed ones:
+ * <p>
+ * First each candidate gets checked against all earlier candidates, with the system split
+ * into strips that are checked in parallel. Each candidate remembers the earlier ones it collides with.
+ * Then a quick pass in candidate order keeps every candidate that does not collide with an already kept one
+ */
+class SpheroidConflictResolver {
+	
+	private static final int[] NO_COLLISIONS = new int[0];
+	
+	private final List<SpheroidPlacement> placed;
+	private final List<SpheroidPlacement> candidates;
+	private final int originX;
+	private final int originZ;
+	private final int cellSize;
+	private final int cellCount;
+	private final int minDistance;
+	
+	// the candidates in the cell with index i are cellEntries[cellOffsets[i]] until cellEntries[cellOffsets[i + 1]]
+	// in each cell they are sorted by their index
+	private final int[] cellOffsets;
+	private final int[] cellEntries;
+	private final int maxCandidateRadius;
+	
+	private final boolean[] collidesWithPlaced;
+	private final int[][] earlierCollisions;
+	
+	/**
+	 * @param placed      spheroids that are placed in any case, like the starter spheroids
+	 * @param candidates  the candidates, in the order they would be placed in
+	 * @param originX     the lowest x block coordinate of the system
+	 * @param originZ     the lowest z block coordinate of the system
+	 * @param systemSize  width of the system in blocks
+	 * @param cellSize    width of a single cell in blocks. Ideally min distance + the biggest possible diameter
+	 * @param minDistance the min distance between two spheroids
+	 */
+	private SpheroidConflictResolver(@NotNull List<SpheroidPlacement> placed, @NotNull List<SpheroidPlacement> candidates, int originX, int originZ, int systemSize, int cellSize, int minDistance) {
+		this.placed = placed;
+		this.candidates = candidates;
+		this.originX = originX;
+		this.originZ = originZ;
+		this.cellSize = Math.max(1, cellSize);
+		// same as in SpheroidPlacementGrid: a negative min distance would let far away spheroids collide
+		this.cellCount = minDistance < 0 ? 1 : Math.max(1, Math.floorDiv(systemSize + this.cellSize - 1, this.cellSize));
+		this.minDistance = minDistance;
+		this.collidesWithPlaced = new boolean[candidates.size()];
+		this.earlierCollisions = new int[candidates.size()][];
+		
+		int maxRadius = 0;
+		int[] candidateCells = new int[candidates.size()];
+		this.cellOffsets = new int[cellCount * cellCount + 1];
+		for (int i = 0; i < candidates.size(); i++) {
+			SpheroidPlacement candidate = candidates.get(i);
+			candidateCells[i] = getCellX(candidate.getPosition().getX()) * cellCount + getCellZ(candidate.getPosition().getZ());
+			cellOffsets[candidateCells[i] + 1]++;
+			maxRadius = Math.max(maxRadius, candidate.getRadius());
+		}
+		this.maxCandidateRadius = maxRadius;
+		
+		for (int i = 1; i < cellOffsets.length; i++) {
+			cellOffsets[i] += cellOffsets[i - 1];
+		}
+		
+		this.cellEntries = new int[candidates.size()];
+		int[] fill = new int[cellCount * cellCount];
+		for (int i = 0; i < candidates.size(); i++) {
+			int cell = candidateCells[i];
+			cellEntries[cellOffsets[cell] + fill[cell]] = i;
+			fill[cell]++;
+		}
+	}
+	
+	/**
+	 * Decides which of the candidates get placed. Same as adding them to a SpheroidPlacementGrid
+	 * one after another, skipping each one that collides with the ones placed before
+	 *
+	 * @param placed      spheroids that are placed in any case, like the starter spheroids
+	 * @param candidates  the candidates, in the order they would be placed in
+	 * @param originX     the lowest x block coordinate of the system
+	 * @param originZ     the lowest z block coordinate of the system
+	 * @param systemSize  width of the system in blocks
+	 * @param cellSize    width of the strips the system gets split into, in blocks. Ideally min distance + the biggest possible diameter
+	 * @param minDistance the min distance between two spheroids
+	 * @return the candidates that get placed, in candidate order
+	 */
+	public static @NotNull List<SpheroidPlacement> resolve(@NotNull List<SpheroidPlacement> placed, @NotNull List<SpheroidPlacement> candidates, int originX, int originZ, int systemSize, int cellSize, int minDistance) {
+		SpheroidConflictResolver resolver = new SpheroidConflictResolver(placed, candidates, originX, originZ, systemSize, cellSize, minDistance);
+		ForkJoinPool.commonPool().invoke(resolver.new CheckTask(0, resolver.cellCount));
+		return resolver.merge();
+	}
+	
+	private int getCellX(int x) {
+		return MathHelper.clamp(Math.floorDiv(x - originX, cellSize), 0, cellCount - 1);
+	}
+	
+	private int getCellZ(int z) {
+		return MathHelper.clamp(Math.floorDiv(z - originZ, cellSize), 0, cellCount - 1);
+	}
+	
+	private boolean collides(@NotNull SpheroidPlacement placement, @NotNull BlockPos position, int radius) {
+		//each spheroid has to be at least pl1.radius + pl2.radius + min distance apart
+		int distMin = (placement.getRadius() + radius + minDistance);
+		double distSquared = position.getSquaredDistance(placement.getPosition());
+		return distSquared < distMin * distMin;
+	}
+	
+	/**
+	 * Finds all earlier candidates the candidate with the given index collides with
+	 * Only writes the results of that candidate, so candidates can be checked on different threads
+	 */
+	private void check(int index) {
+		SpheroidPlacement candidate = candidates.get(index);
+		BlockPos position = candidate.getPosition();
+		int radius = candidate.getRadius();
+		
+		for (SpheroidPlacement placement : placed) {
+			if (collides(placement, position, radius)) {
+				collidesWithPlaced[index] = true;
+				earlierCollisions[index] = NO_COLLISIONS;
+				return;
+			}
+		}
+		
+		// no candidate can be further away than this and still collide
+		int reach = radius + maxCandidateRadius + minDistance;
+		int minCellX = getCellX(position.getX() - reach);
+		int maxCellX = getCellX(position.getX() + reach);
+		int minCellZ = getCellZ(position.getZ() - reach);
+		int maxCellZ = getCellZ(position.getZ() + reach);
+		
+		int[] collisions = NO_COLLISIONS;
+		int collisionCount = 0;
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+				int cell = cellX * cellCount + cellZ;
+				for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+					int other = cellEntries[i];
+					if (other >= index) {
+						// all the following candidates of this cell come after this one
+						break;
+					}
+					if (collides(candidates.get(other), position, radius)) {
+						if (collisionCount == collisions.length) {
+							collisions = Arrays.copyOf(collisions, Math.max(4, collisionCount * 2));
+						}
+						collisions[collisionCount] = other;
+						collisionCount++;
+					}
+				}
+			}
+		}
+		earlierCollisions[index] = collisionCount == collisions.length ? collisions : Arrays.copyOf(collisions, collisionCount);
+	}
+	
+	/**
+	 * Walks the candidates in order, keeping each one that does not collide with an already kept one
+	 */
+	private @NotNull List<SpheroidPlacement> merge() {
+		boolean[] kept = new boolean[candidates.size()];
+		List<SpheroidPlacement> keptCandidates = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			if (collidesWithPlaced[i]) {
+				continue;
+			}
+			boolean collides = false;
+			for (int other : earlierCollisions[i]) {
+				if (kept[other]) {
+					collides = true;
+					break;
+				}
+			}
+			if (!collides) {
+				kept[i] = true;
+				keptCandidates.add(candidates.get(i));
+			}
+		}
+		return keptCandidates;
+	}
+	
+	/**
+	 * Checks all candidates in a strip of cells along the x axis,
+	 * splitting it in half until each task only has a single strip left
+	 */
+	private class CheckTask extends RecursiveAction {
+		
+		private final int fromCellX;
+		private final int toCellX;
+		
+		CheckTask(int fromCellX, int toCellX) {
+			this.fromCellX = fromCellX;
+			this.toCellX = toCellX;
+		}
+		
+		@Override
+		protected void compute() {
+			if (toCellX - fromCellX > 1) {
+				int middle = (fromCellX + toCellX) >>> 1;
+				invokeAll(new CheckTask(fromCellX, middle), new CheckTask(middle, toCellX));
+				return;
+			}
+			
+			int firstCell = fromCellX * cellCount;
+			int lastCell = toCellX * cellCount;
+			for (int i = cellOffsets[firstCell]; i < cellOffsets[lastCell]; i++) {
+				check(cellEntries[i]);
+			}
+		}
+		
+	}
+	
+}
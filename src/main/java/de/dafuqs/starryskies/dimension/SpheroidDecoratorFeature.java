@@ -22,14 +22,19 @@ public class SpheroidDecoratorFeature extends Feature {
 	public boolean generate(@NotNull FeatureContext featureContext) {
 		if (featureContext.getGenerator() instanceof StarrySkyChunkGenerator) {
 			SystemGenerator systemGenerator = SystemGenerator.getSystemGeneratorOfWorld(featureContext.getWorld().toServerWorld().getRegistryKey());
-			List<Spheroid> localSystem = systemGenerator.getSystemAtChunkPos(featureContext.getOrigin().getX() / 16, featureContext.getOrigin().getZ() / 16);
-			for (Spheroid spheroid : localSystem) {
-				if (spheroid.isInChunk(new ChunkPos(featureContext.getOrigin()))) {
-					
-					StarrySkies.log(Level.DEBUG, "Decorating spheroid at x:" + featureContext.getOrigin().getX() + " z:" + featureContext.getOrigin().getZ() + spheroid.getDescription());
-					spheroid.decorate(featureContext.getWorld(), featureContext.getOrigin(), featureContext.getRandom());
-					StarrySkies.log(Level.DEBUG, "Finished decorating.");
+			ChunkPos chunkPos = new ChunkPos(featureContext.getOrigin());
+			// the blocks decorations of neighboring chunks could not place in this one back then
+			systemGenerator.getPendingDecorationWrites().complete(featureContext.getWorld(), chunkPos);
+			
+			List<Spheroid> localSpheroids = systemGenerator.getSpheroidsInChunk(chunkPos);
+			for (Spheroid spheroid : localSpheroids) {
+				if (spheroid.getTouchedSections(chunkPos, featureContext.getWorld()) == null) {
+					// none of its blocks made it into the world. There is nothing to decorate
+					continue;
 				}
+				StarrySkies.log(Level.DEBUG, "Decorating spheroid at x:" + featureContext.getOrigin().getX() + " z:" + featureContext.getOrigin().getZ() + spheroid.getDescription());
+				spheroid.decorate(featureContext.getWorld(), featureContext.getOrigin(), featureContext.getRandom());
+				StarrySkies.log(Level.DEBUG, "Finished decorating.");
 			}
 		}
 		return false;
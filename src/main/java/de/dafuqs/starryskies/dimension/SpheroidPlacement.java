@@ -0,0 +1,50 @@
+package de.dafuqs.starryskies.dimension;
+
+import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Where a spheroid of a system is placed and all that is needed to create it again.
+ * Only used while a system is generated, before it gets packed into a SpheroidSystem
+ */
+public class SpheroidPlacement {
+	
+	private final Spheroid.Template template;
+	private final BlockPos position;
+	private final float radius;
+	private final long seed;
+	
+	/**
+	 * @param template the template the spheroid gets generated from
+	 * @param position the center of the spheroid
+	 * @param radius   the exact radius the template generated the spheroid with
+	 * @param seed     the state of the random the spheroid gets generated with, see Support.restoreRandom()
+	 */
+	public SpheroidPlacement(Spheroid.Template template, BlockPos position, float radius, long seed) {
+		this.template = template;
+		this.position = position;
+		this.radius = radius;
+		this.seed = seed;
+	}
+	
+	public Spheroid.Template getTemplate() {
+		return template;
+	}
+	
+	public BlockPos getPosition() {
+		return position;
+	}
+	
+	public int getRadius() {
+		return Math.round(radius);
+	}
+	
+	public float getExactRadius() {
+		return radius;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+}
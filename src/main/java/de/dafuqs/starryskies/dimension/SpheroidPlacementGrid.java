@@ -0,0 +1,100 @@
+package de.dafuqs.starryskies.dimension;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid over the x/z plane of a system, used to check new spheroids
+ * against the already placed ones while a system is generated.
+ * Each candidate is only tested against spheroids in the cells it could possibly reach
+ * instead of against every spheroid in the system
+ */
+class SpheroidPlacementGrid {
+	
+	private final int originX;
+	private final int originZ;
+	private final int cellSize;
+	private final int cellCount;
+	private final int minDistance;
+	private final List<SpheroidPlacement>[] cells;
+	
+	// the largest radius of all placed spheroids. Bounds how far we have to search
+	private int maxPlacedRadius;
+	
+	/**
+	 * @param originX     the lowest x block coordinate of the system
+	 * @param originZ     the lowest z block coordinate of the system
+	 * @param systemSize  width of the system in blocks
+	 * @param cellSize    width of a single cell in blocks. Ideally min distance + the biggest possible diameter
+	 * @param minDistance the min distance between two spheroids
+	 */
+	@SuppressWarnings("unchecked")
+	public SpheroidPlacementGrid(int originX, int originZ, int systemSize, int cellSize, int minDistance) {
+		this.originX = originX;
+		this.originZ = originZ;
+		this.cellSize = Math.max(1, cellSize);
+		// a negative min distance would let far away spheroids collide. Fall back to checking all of them
+		this.cellCount = minDistance < 0 ? 1 : Math.max(1, Math.floorDiv(systemSize + this.cellSize - 1, this.cellSize));
+		this.minDistance = minDistance;
+		this.cells = new List[cellCount * cellCount];
+	}
+	
+	// spheroids outside the system (like the shared end spawn) end up in the border cells
+	// clamping keeps the order of cells, so range queries stay correct for them
+	private int getCellX(int x) {
+		return MathHelper.clamp(Math.floorDiv(x - originX, cellSize), 0, cellCount - 1);
+	}
+	
+	private int getCellZ(int z) {
+		return MathHelper.clamp(Math.floorDiv(z - originZ, cellSize), 0, cellCount - 1);
+	}
+	
+	public void add(@NotNull SpheroidPlacement placement) {
+		int index = getCellX(placement.getPosition().getX()) * cellCount + getCellZ(placement.getPosition().getZ());
+		if (cells[index] == null) {
+			cells[index] = new ArrayList<>();
+		}
+		cells[index].add(placement);
+		maxPlacedRadius = Math.max(maxPlacedRadius, placement.getRadius());
+	}
+	
+	/**
+	 * Checks if a spheroid with the given radius at the given position would
+	 * be too close to any of the already placed spheroids
+	 *
+	 * @param position the position of the new spheroid
+	 * @param radius   the radius of the new spheroid
+	 * @return true if it collides with an existing one
+	 */
+	public boolean collides(@NotNull BlockPos position, int radius) {
+		// no placed spheroid can be further away than this and still collide
+		int reach = radius + maxPlacedRadius + minDistance;
+		int minCellX = getCellX(position.getX() - reach);
+		int maxCellX = getCellX(position.getX() + reach);
+		int minCellZ = getCellZ(position.getZ() - reach);
+		int maxCellZ = getCellZ(position.getZ() + reach);
+		
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+				List<SpheroidPlacement> cell = cells[cellX * cellCount + cellZ];
+				if (cell == null) {
+					continue;
+				}
+				for (SpheroidPlacement placement : cell) {
+					//each spheroid has to be at least pl1.radius + pl2.radius + min distance apart
+					int distMin = (placement.getRadius() + radius + minDistance);
+					double distSquared = position.getSquaredDistance(placement.getPosition());
+					if (distSquared < distMin * distMin) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,313 @@
+package de.dafuqs.starryskies.dimension;
+
+import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.apache.logging.log4j.Level.WARN;
+
+/**
+ * The placements of all spheroids of a single system, together with an index
+ * of which spheroids reach into which chunk of that system.
+ * The index is built once when the system is created, so chunk generation,
+ * decoration and entity population only ever look at the few spheroids
+ * that are relevant to them instead of checking each spheroid in the system
+ * <p>
+ * Placements are stored as parallel primitive arrays, with the templates interned
+ * in a small table, so a cached system costs a handful of arrays instead of thousands of objects.
+ * The spheroids themselves, with their decorators, spawns and block states,
+ * are only created the first time something actually needs them
+ */
+public class SpheroidSystem {
+	
+	private final int firstChunkX;
+	private final int firstChunkZ;
+	private final int sizeChunks;
+	
+	private final Spheroid.Template[] templates;
+	private final short[] templateIndices;
+	private final int[] xs;
+	private final int[] ys;
+	private final int[] zs;
+	private final float[] radii;
+	private final long[] seeds;
+	private final AtomicReferenceArray<Spheroid> spheroids;
+	
+	// compressed index: the spheroids in the chunk with local index i
+	// are placementsInChunks[chunkOffsets[i]] until placementsInChunks[chunkOffsets[i + 1]]
+	private final int[] chunkOffsets;
+	private final int[] placementsInChunks;
+	
+	/**
+	 * @param systemPoint     the system point
+	 * @param sizeChunks      width of the system in chunks
+	 * @param templates       the interned templates of this system
+	 * @param templateIndices for each spheroid the index of its template in templates
+	 * @param xs              for each spheroid the x coordinate of its center
+	 * @param ys              for each spheroid the y coordinate of its center
+	 * @param zs              for each spheroid the z coordinate of its center
+	 * @param radii           for each spheroid the exact radius its template generated it with
+	 * @param seeds           for each spheroid the state of the random it gets generated with
+	 */
+	public SpheroidSystem(@NotNull Point systemPoint, int sizeChunks, Spheroid.Template[] templates, short[] templateIndices, int[] xs, int[] ys, int[] zs, float[] radii, long[] seeds) {
+		this.sizeChunks = sizeChunks;
+		this.firstChunkX = systemPoint.x * sizeChunks;
+		this.firstChunkZ = systemPoint.y * sizeChunks;
+		this.templates = templates;
+		this.templateIndices = templateIndices;
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		this.radii = radii;
+		this.seeds = seeds;
+		this.spheroids = new AtomicReferenceArray<>(xs.length);
+		this.chunkOffsets = new int[sizeChunks * sizeChunks + 1];
+		
+		// count the spheroids per chunk
+		int[] bounds = new int[xs.length * 4];
+		for (int i = 0; i < xs.length; i++) {
+			getChunkBounds(i, bounds, i * 4);
+			for (int x = bounds[i * 4]; x <= bounds[i * 4 + 1]; x++) {
+				for (int z = bounds[i * 4 + 2]; z <= bounds[i * 4 + 3]; z++) {
+					chunkOffsets[x * sizeChunks + z + 1]++;
+				}
+			}
+		}
+		
+		for (int i = 1; i < chunkOffsets.length; i++) {
+			chunkOffsets[i] += chunkOffsets[i - 1];
+		}
+		
+		// and fill them in, keeping the order of the system
+		this.placementsInChunks = new int[chunkOffsets[chunkOffsets.length - 1]];
+		int[] fill = new int[sizeChunks * sizeChunks];
+		for (int i = 0; i < xs.length; i++) {
+			for (int x = bounds[i * 4]; x <= bounds[i * 4 + 1]; x++) {
+				for (int z = bounds[i * 4 + 2]; z <= bounds[i * 4 + 3]; z++) {
+					int chunkIndex = x * sizeChunks + z;
+					placementsInChunks[chunkOffsets[chunkIndex] + fill[chunkIndex]] = i;
+					fill[chunkIndex]++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Packs the given placements into a new system
+	 *
+	 * @param systemPoint the system point
+	 * @param sizeChunks  width of the system in chunks
+	 * @param placements  the placements of the spheroids of that system
+	 * @return the system
+	 */
+	@Contract("_, _, _ -> new")
+	public static @NotNull SpheroidSystem of(@NotNull Point systemPoint, int sizeChunks, @NotNull List<SpheroidPlacement> placements) {
+		// keeps insertion order, so the indices match the order of the template table
+		Map<Spheroid.Template, Short> templateTable = new LinkedHashMap<>();
+		short[] templateIndices = new short[placements.size()];
+		int[] xs = new int[placements.size()];
+		int[] ys = new int[placements.size()];
+		int[] zs = new int[placements.size()];
+		float[] radii = new float[placements.size()];
+		long[] seeds = new long[placements.size()];
+		
+		for (int i = 0; i < placements.size(); i++) {
+			SpheroidPlacement placement = placements.get(i);
+			templateIndices[i] = templateTable.computeIfAbsent(placement.getTemplate(), template -> (short) templateTable.size());
+			xs[i] = placement.getPosition().getX();
+			ys[i] = placement.getPosition().getY();
+			zs[i] = placement.getPosition().getZ();
+			radii[i] = placement.getExactRadius();
+			seeds[i] = placement.getSeed();
+		}
+		
+		Spheroid.Template[] templates = templateTable.keySet().toArray(new Spheroid.Template[0]);
+		return new SpheroidSystem(systemPoint, sizeChunks, templates, templateIndices, xs, ys, zs, radii, seeds);
+	}
+	
+	/**
+	 * Calculates the range of local chunk coordinates a spheroid reaches into,
+	 * matching the one of Spheroid.isInChunk(), clamped to the chunks of this system
+	 * Empty ranges have their min greater than their max
+	 */
+	private void getChunkBounds(int index, int[] bounds, int offset) {
+		int radius = getRadius(index);
+		int x = xs[index];
+		int z = zs[index];
+		
+		// isInChunk() holds for chunks with x - radius - 16 <= startX <= x + radius
+		bounds[offset] = Math.max(0, Math.floorDiv(x - radius - 16 + 15, 16) - firstChunkX);
+		bounds[offset + 1] = Math.min(sizeChunks - 1, Math.floorDiv(x + radius, 16) - firstChunkX);
+		bounds[offset + 2] = Math.max(0, Math.floorDiv(z - radius - 16 + 15, 16) - firstChunkZ);
+		bounds[offset + 3] = Math.min(sizeChunks - 1, Math.floorDiv(z + radius, 16) - firstChunkZ);
+	}
+	
+	/**
+	 * @return how many spheroids this system contains
+	 */
+	public int size() {
+		return xs.length;
+	}
+	
+	public Spheroid.Template[] getTemplates() {
+		return templates;
+	}
+	
+	public int getTemplateIndex(int index) {
+		return templateIndices[index];
+	}
+	
+	public Spheroid.Template getTemplate(int index) {
+		return templates[templateIndices[index]];
+	}
+	
+	public int getX(int index) {
+		return xs[index];
+	}
+	
+	public int getY(int index) {
+		return ys[index];
+	}
+	
+	public int getZ(int index) {
+		return zs[index];
+	}
+	
+	public int getRadius(int index) {
+		return Math.round(radii[index]);
+	}
+	
+	public float getExactRadius(int index) {
+		return radii[index];
+	}
+	
+	public long getSeed(int index) {
+		return seeds[index];
+	}
+	
+	/**
+	 * Squared distance between the center of a spheroid and a position
+	 * Same as BlockPos.getSquaredDistance(), but without having to create the spheroid
+	 */
+	public double getSquaredDistance(int index, @NotNull BlockPos pos) {
+		double x = pos.getX() - xs[index];
+		double y = pos.getY() - ys[index];
+		double z = pos.getZ() - zs[index];
+		return x * x + y * y + z * z;
+	}
+	
+	/**
+	 * Same as Spheroid.isInChunk(), but without having to create the spheroid
+	 */
+	public boolean isInChunk(int index, @NotNull ChunkPos chunkPos) {
+		int radius = getRadius(index);
+		int xMin = xs[index] - radius - 16;
+		int xMax = xs[index] + radius + 15;
+		int zMin = zs[index] - radius - 16;
+		int zMax = zs[index] + radius + 15;
+		return (chunkPos.getStartX() >= xMin && chunkPos.getEndX() <= xMax) && (chunkPos.getStartZ() >= zMin && chunkPos.getEndZ() <= zMax);
+	}
+	
+	/**
+	 * Same as Spheroid.getColumnHalfHeight(), but without having to create the spheroid
+	 *
+	 * @return the half height of the spheroid in the column at x, z or a negative value, if it has no blocks there
+	 */
+	public int getColumnHalfHeight(int index, int x, int z) {
+		int dx = x - xs[index];
+		int dz = z - zs[index];
+		return Support.getColumnHalfHeight(dx * dx + dz * dz, radii[index]);
+	}
+	
+	/**
+	 * @return how many spheroids reach into the given chunk of this system, 0 for chunks that are not part of it
+	 */
+	public int countSpheroidsInChunk(int chunkX, int chunkZ) {
+		int chunkIndex = getLocalChunkIndex(chunkX, chunkZ);
+		return chunkIndex < 0 ? 0 : chunkOffsets[chunkIndex + 1] - chunkOffsets[chunkIndex];
+	}
+	
+	/**
+	 * Together with countSpheroidsInChunk() goes through the spheroids reaching into a chunk
+	 * without creating them or allocating anything
+	 *
+	 * @param n which of the spheroids in the chunk, in the order they appear in the system
+	 * @return the index of that spheroid in this system
+	 */
+	public int getSpheroidIndexInChunk(int chunkX, int chunkZ, int n) {
+		return placementsInChunks[chunkOffsets[getLocalChunkIndex(chunkX, chunkZ)] + n];
+	}
+	
+	private int getLocalChunkIndex(int chunkX, int chunkZ) {
+		int localX = chunkX - firstChunkX;
+		int localZ = chunkZ - firstChunkZ;
+		if (localX < 0 || localX >= sizeChunks || localZ < 0 || localZ >= sizeChunks) {
+			return -1;
+		}
+		return localX * sizeChunks + localZ;
+	}
+	
+	/**
+	 * Returns the spheroid at the given index, creating it from its template the first time it is requested
+	 *
+	 * @param index the index of the spheroid in this system
+	 * @return the spheroid
+	 */
+	public Spheroid getSpheroid(int index) {
+		Spheroid spheroid = spheroids.get(index);
+		if (spheroid == null) {
+			// two threads creating it at the same time end up with identical spheroids. The first one wins
+			Spheroid.Template template = getTemplate(index);
+			spheroid = template.generate(Support.restoreRandom(seeds[index]));
+			if (Float.floatToIntBits(spheroid.getExactRadius()) != Float.floatToIntBits(radii[index])) {
+				StarrySkies.log(WARN, "Spheroid " + template.getID() + " at " + xs[index] + "," + ys[index] + "," + zs[index] + " got generated with a different radius than it was placed with. Did the template change?");
+			}
+			spheroid.setPosition(new BlockPos(xs[index], ys[index], zs[index]));
+			spheroid.setSeed(seeds[index]);
+			if (!spheroids.compareAndSet(index, null, spheroid)) {
+				spheroid = spheroids.get(index);
+			}
+		}
+		return spheroid;
+	}
+	
+	/**
+	 * Returns all spheroids of this system that reach into the given chunk
+	 * Spheroids that have not been needed before get created from their placement
+	 *
+	 * @param chunkPos a chunk inside this system
+	 * @return the spheroids in that chunk, in the order they appear in the system
+	 */
+	public List<Spheroid> getSpheroidsInChunk(@NotNull ChunkPos chunkPos) {
+		int localX = chunkPos.x - firstChunkX;
+		int localZ = chunkPos.z - firstChunkZ;
+		List<Spheroid> spheroidsInChunk = new ArrayList<>();
+		if (localX < 0 || localX >= sizeChunks || localZ < 0 || localZ >= sizeChunks) {
+			// not part of this system. Check them the slow way
+			for (int i = 0; i < xs.length; i++) {
+				if (isInChunk(i, chunkPos)) {
+					spheroidsInChunk.add(getSpheroid(i));
+				}
+			}
+			return spheroidsInChunk;
+		}
+		
+		int chunkIndex = localX * sizeChunks + localZ;
+		for (int i = chunkOffsets[chunkIndex]; i < chunkOffsets[chunkIndex + 1]; i++) {
+			spheroidsInChunk.add(getSpheroid(placementsInChunks[i]));
+		}
+		return spheroidsInChunk;
+	}
+	
+}
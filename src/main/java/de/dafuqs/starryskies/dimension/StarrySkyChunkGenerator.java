@@ -3,7 +3,11 @@ package de.dafuqs.starryskies.dimension;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
+import de.dafuqs.starryskies.spheroids.PendingDecorationWrites;
+import de.dafuqs.starryskies.spheroids.SpheroidSurface;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.structure.StructureSet;
@@ -11,6 +15,7 @@ import net.minecraft.util.dynamic.Codecs;
 import net.minecraft.util.dynamic.RegistryOps;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.random.CheckedRandom;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.math.random.RandomSeed;
@@ -24,6 +29,7 @@ import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.source.BiomeAccess;
 import net.minecraft.world.biome.source.FixedBiomeSource;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.PalettedContainer;
 import net.minecraft.world.gen.GenerationStep;
 import net.minecraft.world.gen.StructureAccessor;
 import net.minecraft.world.gen.chunk.Blender;
@@ -33,11 +39,17 @@ import net.minecraft.world.gen.noise.NoiseConfig;
 import org.apache.logging.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 public class StarrySkyChunkGenerator extends ChunkGenerator {
 	
@@ -50,6 +62,10 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 	private final int floorHeight;
 	private final BlockState floorBlockState;
 	private final BlockState bottomBlockState;
+	private final List<PalettedContainer<BlockState>> floorSectionTemplates;
+	
+	// samples of columns without any spheroids, by the bottom y and height of the world they are for
+	private final Map<Long, VerticalBlockSample> emptyColumnSamples = new ConcurrentHashMap<>();
 	
 	public static final Codec<StarrySkyChunkGenerator> CODEC = RecordCodecBuilder
 			.create(instance -> createStructureSetRegistryGetter(instance)
@@ -69,6 +85,7 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		this.floorBlockState = spheroidDimensionType.getFloorBlockState();
 		this.bottomBlockState = spheroidDimensionType.getBottomBlockState();
 		this.floorHeight = spheroidDimensionType.getFloorHeight();
+		this.floorSectionTemplates = createFloorSectionTemplates();
 	}
 	
 	private static FixedBiomeSource createBiomeSource(Registry<Biome> biomeRegistry, int spheroidDimensionTypeOrdinal) {
@@ -90,6 +107,32 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		return CODEC;
 	}
 	
+	/**
+	 * The floor is the same in every chunk, so the sections it reaches into are prepared once
+	 * and then copied into each chunk as a whole. Floors that emit light are written block by block,
+	 * since their light sources have to be tracked
+	 */
+	private @NotNull List<PalettedContainer<BlockState>> createFloorSectionTemplates() {
+		List<PalettedContainer<BlockState>> templates = new ArrayList<>();
+		if (floorHeight <= 0 || floorBlockState.getLuminance() > 0 || bottomBlockState.getLuminance() > 0) {
+			return templates;
+		}
+		for (int minY = 0; minY <= getSeaLevel(); minY += 16) {
+			PalettedContainer<BlockState> template = new PalettedContainer<>(Block.STATE_IDS, Blocks.AIR.getDefaultState(), PalettedContainer.PaletteProvider.BLOCK_STATE);
+			int maxY = Math.min(minY + 15, getSeaLevel());
+			for (int y = minY; y <= maxY; y++) {
+				BlockState blockState = getSeaBlock(y);
+				for (int x = 0; x < 16; x++) {
+					for (int z = 0; z < 16; z++) {
+						template.set(x, y & 15, z, blockState);
+					}
+				}
+			}
+			templates.add(template);
+		}
+		return templates;
+	}
+	
 	@Override
 	public void buildSurface(ChunkRegion region, StructureAccessor structures, NoiseConfig noiseConfig, Chunk chunk) {
 		ChunkPos chunkPos = chunk.getPos();
@@ -99,13 +142,25 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		
 		// Generate floor if set
 		if (floorHeight > 0) {
-			for (int y = 0; y <= getSeaLevel(); y++) {
-				for (int x = 0; x < 16; x++) {
-					for (int z = 0; z < 16; z++) {
-						chunk.setBlockState(new BlockPos(chunkPosStartX + x, y, chunkPosStartZ + z), getSeaBlock(y), false);
+			ChunkSectionWriter writer = new ChunkSectionWriter(chunk);
+			for (int minY = 0; minY <= getSeaLevel(); minY += 16) {
+				int maxY = Math.min(minY + 15, getSeaLevel());
+				int templateIndex = minY >> 4;
+				if (templateIndex < floorSectionTemplates.size() && writer.copySection(minY >> 4, floorSectionTemplates.get(templateIndex), minY, maxY)) {
+					continue;
+				}
+				
+				// there are spheroid blocks in that section already, or the floor emits light
+				for (int x = chunkPosStartX; x < chunkPosStartX + 16; x++) {
+					for (int z = chunkPosStartZ; z < chunkPosStartZ + 16; z++) {
+						if (minY == 0) {
+							writer.setBlockState(x, 0, z, getSeaBlock(0));
+						}
+						writer.fillColumn(x, z, Math.max(minY, 1), maxY, getSeaBlock(1));
 					}
 				}
 			}
+			writer.flush();
 		}
 	}
 	
@@ -127,10 +182,101 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		return StarrySkies.starryWorld.getHeight();
 	}
 	
+	/**
+	 * Generates the spheroids of the chunk. Spheroids that do not share any chunk sections
+	 * are generated in parallel on the executor, since none of them can overwrite the blocks of another.
+	 * Spheroids that do share sections are generated one after another in the same task,
+	 * in the same order as placeSpheroids() would, so the resulting chunk is always the same
+	 */
 	@Override
 	public CompletableFuture<Chunk> populateNoise(Executor executor, Blender blender, NoiseConfig noiseConfig, StructureAccessor structureAccessor, Chunk chunk) {
-		placeSpheroids(chunk); // generate spheres
-		return CompletableFuture.completedFuture(chunk);
+		List<Spheroid> localSpheroids = systemGenerator.getSpheroidsInChunk(chunk.getPos());
+		List<List<Spheroid>> groups = getSectionDisjointGroups(chunk, localSpheroids);
+		if (groups.isEmpty()) {
+			// no spheroid reaches into any section of this chunk
+			return CompletableFuture.completedFuture(chunk);
+		}
+		if (groups.size() < 2) {
+			placeSpheroids(chunk); // generate spheres
+			return CompletableFuture.completedFuture(chunk);
+		}
+		
+		ChunkSectionWriter[] writers = new ChunkSectionWriter[groups.size()];
+		for (int i = 0; i < groups.size(); i++) {
+			writers[i] = new ChunkSectionWriter(chunk);
+		}
+		if (!writers[0].isDirect()) {
+			// writes going through the chunk itself are not safe to do from multiple threads
+			placeSpheroids(chunk);
+			return CompletableFuture.completedFuture(chunk);
+		}
+		
+		CompletableFuture<?>[] futures = new CompletableFuture[groups.size()];
+		for (int i = 0; i < groups.size(); i++) {
+			ChunkSectionWriter writer = writers[i];
+			List<Spheroid> group = groups.get(i);
+			futures[i] = CompletableFuture.runAsync(() -> {
+				for (Spheroid spheroid : group) {
+					generateSpheroid(writer, chunk, spheroid);
+				}
+				writer.unlockSection();
+			}, executor);
+		}
+		
+		return CompletableFuture.allOf(futures).thenApply(v -> {
+			// heightmaps span all sections, so they are only updated once all groups are done
+			for (ChunkSectionWriter writer : writers) {
+				writer.flush();
+			}
+			return chunk;
+		});
+	}
+	
+	/**
+	 * Splits the spheroids into groups that do not share any section of the chunk
+	 * The spheroids of each group keep the order they had in the list.
+	 * Spheroids that do not touch any section of the chunk are left out
+	 */
+	private static @NotNull List<List<Spheroid>> getSectionDisjointGroups(@NotNull Chunk chunk, @NotNull List<Spheroid> spheroids) {
+		int spheroidCount = spheroids.size();
+		Spheroid.SectionRange[] ranges = new Spheroid.SectionRange[spheroidCount];
+		List<Integer> byMinSection = new ArrayList<>(spheroidCount);
+		for (int i = 0; i < spheroidCount; i++) {
+			ranges[i] = spheroids.get(i).getTouchedSections(chunk.getPos(), chunk);
+			if (ranges[i] != null) {
+				byMinSection.add(i);
+			}
+		}
+		byMinSection.sort(Comparator.comparingInt(i -> ranges[i].minSectionIndex));
+		
+		List<List<Spheroid>> groups = new ArrayList<>();
+		List<Integer> group = new ArrayList<>();
+		int groupMaxSection = Integer.MIN_VALUE;
+		for (int i : byMinSection) {
+			if (!group.isEmpty() && ranges[i].minSectionIndex > groupMaxSection) {
+				groups.add(toSpheroids(spheroids, group));
+				group = new ArrayList<>();
+			}
+			group.add(i);
+			groupMaxSection = Math.max(groupMaxSection, ranges[i].maxSectionIndex);
+		}
+		if (!group.isEmpty()) {
+			groups.add(toSpheroids(spheroids, group));
+		}
+		return groups;
+	}
+	
+	/**
+	 * The spheroids at the given indices, in the order of the list instead of the order of their sections.
+	 * Spheroids of the same group can overlap, and the one generated last has to be the same as in placeSpheroids()
+	 */
+	private static @NotNull List<Spheroid> toSpheroids(@NotNull List<Spheroid> spheroids, @NotNull List<Integer> indices) {
+		indices.sort(Comparator.naturalOrder());
+		List<Spheroid> group = new ArrayList<>(indices.size());
+		for (int index : indices) {
+			group.add(spheroids.get(index));
+		}
+		return group;
 	}
 	
 	@Override
@@ -141,8 +287,8 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		chunkRandom.setPopulationSeed(chunkRegion.getSeed(), chunkPos.getStartX(), chunkPos.getStartZ());
 		SpawnHelper.populateEntities(chunkRegion, biome, chunkPos, chunkRandom);
 		
-		List<Spheroid> localSystem = systemGenerator.getSystemAtChunkPos(chunkPos.x, chunkPos.z);
-		for (Spheroid spheroid : localSystem) {
+		List<Spheroid> localSpheroids = systemGenerator.getSpheroidsInChunk(chunkPos);
+		for (Spheroid spheroid : localSpheroids) {
 			spheroid.populateEntities(chunkPos, chunkRegion, chunkRandom);
 		}
 	}
@@ -157,35 +303,156 @@ public class StarrySkyChunkGenerator extends ChunkGenerator {
 		return 0;
 	}
 	
+	/**
+	 * The height of the column at x, z, calculated from the floor and the spheroids standing in it
+	 * Only blocks matching the predicate of the heightmap count, so the insides of caves and fluids do, too
+	 */
 	@Override
 	public int getHeight(int x, int z, Heightmap.Type heightmap, HeightLimitView world, NoiseConfig noiseConfig) {
-		return floorHeight;
+		Predicate<BlockState> predicate = heightmap.getBlockPredicate();
+		int height = getFloorHeight(world, predicate);
+		
+		int chunkX = ChunkSectionPos.getSectionCoord(x);
+		int chunkZ = ChunkSectionPos.getSectionCoord(z);
+		SpheroidSystem system = systemGenerator.getSystemAtChunkPos(chunkX, chunkZ);
+		int count = system.countSpheroidsInChunk(chunkX, chunkZ);
+		for (int n = 0; n < count; n++) {
+			int index = system.getSpheroidIndexInChunk(chunkX, chunkZ, n);
+			int halfHeight = system.getColumnHalfHeight(index, x, z);
+			if (halfHeight < 0) {
+				continue;
+			}
+			
+			int topY;
+			if (system.getTemplate(index).isSolidThroughout()) {
+				topY = predicate.test(Spheroid.COLUMN_SAMPLE_SOLID) ? system.getY(index) + halfHeight : SpheroidSurface.NONE;
+			} else {
+				topY = system.getSpheroid(index).getColumnTopY(x, z, predicate);
+			}
+			if (topY != SpheroidSurface.NONE) {
+				height = Math.max(height, Math.min(topY + 1, world.getTopY()));
+			}
+		}
+		return height;
+	}
+	
+	/**
+	 * The height of a column without any spheroids: the first block above the highest floor block matching the predicate
+	 */
+	private int getFloorHeight(@NotNull HeightLimitView world, @NotNull Predicate<BlockState> predicate) {
+		VerticalBlockSample emptySample = getEmptyColumnSample(world);
+		for (int y = Math.min(getSeaLevel(), world.getTopY() - 1); y >= world.getBottomY(); y--) {
+			if (predicate.test(emptySample.getState(y))) {
+				return y + 1;
+			}
+		}
+		return world.getBottomY();
 	}
 	
 	@Override
 	public void getDebugHudText(List<String> text, NoiseConfig noiseConfig, BlockPos pos) {
-	
+		SystemCache<?> cache = systemGenerator.getCache();
+		text.add("Starry Systems: " + cache.size() + " cached, " + cache.getHitCount() + " hits, " + cache.getMissCount() + " misses, " + cache.getEvictionCount() + " evictions");
+		
+		PendingDecorationWrites pendingWrites = systemGenerator.getPendingDecorationWrites();
+		text.add("Clipped Decoration Blocks: " + pendingWrites.getClippedCount() + " clipped, " + pendingWrites.getCompletedCount() + " completed, " + pendingWrites.getDroppedCount() + " dropped, " + pendingWrites.getPendingChunkCount() + " chunks pending");
 	}
 	
+	/**
+	 * The blocks of the column at x, z, calculated from the floor and the spheroids standing in it
+	 * Solid blocks are sampled as Spheroid.COLUMN_SAMPLE_SOLID. Caves and fluids inside of spheroids are sampled, too
+	 * Columns without spheroids all share the same sample
+	 */
 	@Override
 	public VerticalBlockSample getColumnSample(int x, int z, HeightLimitView world, NoiseConfig noiseConfig) {
-		BlockState[] states = new BlockState[world.getHeight()];
-		Arrays.fill(states, Blocks.AIR.getDefaultState());
-		return new VerticalBlockSample(world.getBottomY(), states);
+		VerticalBlockSample emptySample = getEmptyColumnSample(world);
+		int chunkX = ChunkSectionPos.getSectionCoord(x);
+		int chunkZ = ChunkSectionPos.getSectionCoord(z);
+		SpheroidSystem system = systemGenerator.getSystemAtChunkPos(chunkX, chunkZ);
+		
+		BlockState[] states = null;
+		int bottomY = world.getBottomY();
+		int count = system.countSpheroidsInChunk(chunkX, chunkZ);
+		for (int n = 0; n < count; n++) {
+			int index = system.getSpheroidIndexInChunk(chunkX, chunkZ, n);
+			int halfHeight = system.getColumnHalfHeight(index, x, z);
+			if (halfHeight < 0) {
+				continue;
+			}
+			
+			if (states == null) {
+				states = new BlockState[world.getHeight()];
+				for (int y = bottomY; y < world.getTopY(); y++) {
+					states[y - bottomY] = emptySample.getState(y);
+				}
+			}
+			if (system.getTemplate(index).isSolidThroughout()) {
+				int minY = Math.max(system.getY(index) - halfHeight, bottomY);
+				int maxY = Math.min(system.getY(index) + halfHeight, world.getTopY() - 1);
+				if (minY <= maxY) {
+					Arrays.fill(states, minY - bottomY, maxY - bottomY + 1, Spheroid.COLUMN_SAMPLE_SOLID);
+				}
+			} else {
+				// caves and fluids depend on the random draws of the spheroid, so only those get created
+				system.getSpheroid(index).sampleColumn(x, z, states, bottomY);
+			}
+		}
+		return states == null ? emptySample : new VerticalBlockSample(bottomY, states);
+	}
+	
+	/**
+	 * The sample of a column without any spheroids: only the floor. Never modified, so it can be shared
+	 */
+	private @NotNull VerticalBlockSample getEmptyColumnSample(@NotNull HeightLimitView world) {
+		int bottomY = world.getBottomY();
+		int height = world.getHeight();
+		return emptyColumnSamples.computeIfAbsent(((long) bottomY << 32) | height, key -> {
+			BlockState[] states = new BlockState[height];
+			for (int y = bottomY; y < bottomY + height; y++) {
+				states[y - bottomY] = floorHeight > 0 && y >= 0 && y <= getSeaLevel() ? getSeaBlock(y) : Blocks.AIR.getDefaultState();
+			}
+			return new VerticalBlockSample(bottomY, states);
+		});
 	}
 	
 	public void placeSpheroids(@NotNull Chunk chunk) {
 		ChunkRandom chunkRandom = new ChunkRandom(new CheckedRandom(StarrySkies.starryWorld.getSeed()));
 		chunkRandom.setCarverSeed(StarrySkies.starryWorld.getSeed(), chunk.getPos().getRegionX(), chunk.getPos().getRegionZ());
 		
-		List<Spheroid> localSystem = systemGenerator.getSystemAtChunkPos(chunk.getPos().x, chunk.getPos().z);
-		for (Spheroid spheroid : localSystem) {
-			if (spheroid.isInChunk(chunk.getPos())) {
-				StarrySkies.log(Level.DEBUG, "Generating spheroid in chunk x:" + chunk.getPos().x + " z:" + chunk.getPos().z + " (StartX:" + chunk.getPos().getStartX() + " StartZ:" + chunk.getPos().getStartZ() + ") " + spheroid.getDescription());
-				spheroid.generate(chunk);
-				StarrySkies.log(Level.DEBUG, "Generation Finished.");
+		List<Spheroid> localSpheroids = systemGenerator.getSpheroidsInChunk(chunk.getPos());
+		ChunkSectionWriter writer = new ChunkSectionWriter(chunk);
+		for (Spheroid spheroid : localSpheroids) {
+			if (spheroid.getTouchedSections(chunk.getPos(), chunk) != null) {
+				generateSpheroid(writer, chunk, spheroid);
 			}
 		}
+		writer.flush();
+	}
+	
+	/**
+	 * The sections of the chunk that blocks of spheroids end up in. All other sections of it stay empty.
+	 * Loads or generates the system of the chunk if it is not cached yet, so only call it while generating
+	 *
+	 * @param chunkPos the chunk
+	 * @param world    the height limits of the world
+	 * @return the indices of the touched sections
+	 */
+	public @NotNull BitSet getTouchedSections(@NotNull ChunkPos chunkPos, @NotNull HeightLimitView world) {
+		BitSet touchedSections = new BitSet(world.countVerticalSections());
+		for (Spheroid spheroid : systemGenerator.getSpheroidsInChunk(chunkPos)) {
+			Spheroid.SectionRange range = spheroid.getTouchedSections(chunkPos, world);
+			if (range != null) {
+				touchedSections.set(range.minSectionIndex, range.maxSectionIndex + 1);
+			}
+		}
+		return touchedSections;
+	}
+	
+	private static void generateSpheroid(@NotNull ChunkSectionWriter writer, @NotNull Chunk chunk, @NotNull Spheroid spheroid) {
+		StarrySkies.log(Level.DEBUG, "Generating spheroid in chunk x:" + chunk.getPos().x + " z:" + chunk.getPos().z + " (StartX:" + chunk.getPos().getStartX() + " StartZ:" + chunk.getPos().getStartZ() + ") " + spheroid.getDescription());
+		spheroid.generate(writer, chunk);
+		spheroid.rememberSurface(writer, chunk.getPos());
+		StarrySkies.log(Level.DEBUG, "Generation Finished.");
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package de.dafuqs.starryskies.dimension;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread safe cache of generated systems, shared by the worldgen workers,
+ * the decoration stage and the server thread.
+ * Generation runs outside the lock. Concurrent requests for the same system point
+ * wait for the single in-flight generation instead of each generating their own.
+ * Systems are evicted least recently used first when the cache is full
+ * or when a system has not been accessed for longer than the configured age
+ *
+ * @param <V> the generated system
+ */
+public class SystemCache<V> {
+	
+	private final int maxSize;
+	private final long maxAgeMillis;
+	
+	// access ordered: the eldest entry is always the least recently used one
+	private final LinkedHashMap<Point, Entry<V>> entries = new LinkedHashMap<>(16, 0.75F, true);
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	
+	public SystemCache(int maxSize, long maxAgeMillis) {
+		this.maxSize = Math.max(1, maxSize);
+		this.maxAgeMillis = maxAgeMillis;
+	}
+	
+	/**
+	 * Returns the cached system at the given point.
+	 * If it is not cached yet it is generated using the supplied function.
+	 * If another thread is already generating it, waits for that generation to finish
+	 *
+	 * @param systemPoint the system point
+	 * @param generator   generates the system if it is not cached
+	 * @return the system at that point
+	 */
+	public V get(@NotNull Point systemPoint, Function<Point, V> generator) {
+		long now = System.currentTimeMillis();
+		Entry<V> entry;
+		boolean generateHere = false;
+		
+		synchronized (entries) {
+			evictExpired(now);
+			entry = entries.get(systemPoint);
+			if (entry == null) {
+				entry = new Entry<>();
+				entries.put(systemPoint, entry);
+				generateHere = true;
+				misses.incrementAndGet();
+				evictOverflow();
+			} else {
+				hits.incrementAndGet();
+			}
+			entry.lastAccess = now;
+		}
+		
+		if (generateHere) {
+			try {
+				entry.future.complete(generator.apply(systemPoint));
+			} catch (RuntimeException | Error e) {
+				// do not cache failed generations. The next request will try again
+				synchronized (entries) {
+					entries.remove(systemPoint, entry);
+				}
+				entry.future.completeExceptionally(e);
+				throw e;
+			}
+		}
+		
+		return entry.future.join();
+	}
+	
+	/**
+	 * @param systemPoint the system point
+	 * @return if the system at that point is cached or currently being generated
+	 */
+	public boolean contains(@NotNull Point systemPoint) {
+		synchronized (entries) {
+			// containsKey() does not count as an access, so the LRU order stays untouched
+			return entries.containsKey(systemPoint);
+		}
+	}
+	
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+	
+	private void evictExpired(long now) {
+		if (maxAgeMillis <= 0) {
+			return;
+		}
+		// access order: once we hit an entry that is not expired, all following ones are not either
+		Iterator<Map.Entry<Point, Entry<V>>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<V> entry = iterator.next().getValue();
+			if (now - entry.lastAccess <= maxAgeMillis) {
+				break;
+			}
+			if (entry.future.isDone()) {
+				iterator.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+	
+	private void evictOverflow() {
+		// systems that are still generating are never evicted, someone is waiting for them
+		Iterator<Map.Entry<Point, Entry<V>>> iterator = entries.entrySet().iterator();
+		while (entries.size() > maxSize && iterator.hasNext()) {
+			Entry<V> entry = iterator.next().getValue();
+			if (entry.future.isDone()) {
+				iterator.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+	
+	private static class Entry<V> {
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private long lastAccess;
+	}
+	
+}
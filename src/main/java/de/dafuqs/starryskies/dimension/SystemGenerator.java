@@ -3,14 +3,19 @@ package de.dafuqs.starryskies.dimension;
 import de.dafuqs.starryskies.StarrySkies;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.data_loaders.SpheroidTemplateLoader;
+import de.dafuqs.starryskies.spheroids.PendingDecorationWrites;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.nbt.NbtCompound;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.random.CheckedRandom;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.RegistryKey;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -18,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import static org.apache.logging.log4j.Level.DEBUG;
+import static org.apache.logging.log4j.Level.WARN;
 
 public class SystemGenerator {
 	
@@ -25,8 +31,10 @@ public class SystemGenerator {
 	
 	// spawning probabilities
 	private final SpheroidDimensionType spheroidDimensionType;
-	private final HashMap<Point, List<de.dafuqs.starryskies.spheroids.spheroids.Spheroid>> cache = new HashMap<>();
-	public static ServerWorld world;
+	private final SystemCache<SpheroidSystem> cache;
+	private final PendingDecorationWrites pendingDecorationWrites = new PendingDecorationWrites();
+	private ServerWorld world;
+	private SystemStorage storage;
 	
 	private final int SYSTEM_SIZE_CHUNKS;
 	private final int MIN_DISTANCE_BETWEEN_SPHERES;
@@ -38,6 +46,7 @@ public class SystemGenerator {
 		systemGeneratorMap.put(spheroidDimensionType, this);
 		
 		this.SYSTEM_SIZE_CHUNKS = StarrySkies.CONFIG.systemSizeChunks;
+		this.cache = new SystemCache<>(StarrySkies.CONFIG.systemCacheSize, StarrySkies.CONFIG.systemCacheExpirationSeconds * 1000L);
 		switch (spheroidDimensionType) {
 			case OVERWORLD -> {
 				this.MIN_DISTANCE_BETWEEN_SPHERES = StarrySkies.CONFIG.minDistanceBetweenSpheresOverworld;
@@ -73,27 +82,76 @@ public class SystemGenerator {
 	 *
 	 * @param chunkX chunk chunkX location
 	 * @param chunkZ chunk chunkZ location
-	 * @return List of planetoids representing the system this chunk is in
+	 * @return The planetoids of the system this chunk is in
 	 */
-	public List<Spheroid> getSystemAtChunkPos(int chunkX, int chunkZ) {
+	public SpheroidSystem getSystemAtChunkPos(int chunkX, int chunkZ) {
 		Point systemPos = Support.getSystemCoordinateFromChunkCoordinate(chunkX, chunkZ);
 		return getSystemAtPoint(systemPos);
 	}
 	
-	public List<Spheroid> getSystemAtPoint(Point systemPos) {
-		List<Spheroid> curSystem = cache.get(systemPos);
+	public SpheroidSystem getSystemAtPoint(Point systemPos) {
+		return cache.get(systemPos, this::loadOrGenerateSystem);
+	}
+	
+	/**
+	 * Returns all spheroids that reach into the given chunk
+	 * If the system of that chunk does not exist yet it will be generated
+	 *
+	 * @param chunkPos the chunk
+	 * @return the spheroids in that chunk
+	 */
+	public List<Spheroid> getSpheroidsInChunk(@NotNull ChunkPos chunkPos) {
+		Point systemPos = Support.getSystemCoordinateFromChunkCoordinate(chunkPos.x, chunkPos.z);
+		return getSystemAtPoint(systemPos).getSpheroidsInChunk(chunkPos);
+	}
+	
+	private @NotNull SpheroidSystem loadOrGenerateSystem(@NotNull Point systemPoint) {
+		if (world == null) {
+			world = StarrySkies.getStarryWorld(spheroidDimensionType);
+		}
 		
-		if (curSystem == null) {
-			if (world == null) {
-				world = StarrySkies.getStarryWorld(spheroidDimensionType);
+		// has been generated before? Then it is stored in the world save
+		SystemStorage storage = getStorage();
+		if (storage != null) {
+			SpheroidSystem storedSystem = storage.load(systemPoint);
+			if (storedSystem != null) {
+				return storedSystem;
 			}
-			
-			//doesn't exist. Generate new system and cache it
-			curSystem = generateSpheroidsAtSystemPoint(world, systemPos);
-			cache.put(systemPos, curSystem);
 		}
 		
-		return curSystem;
+		//doesn't exist. Generate new system and cache it
+		SpheroidSystem system = SpheroidSystem.of(systemPoint, SYSTEM_SIZE_CHUNKS, generateSpheroidsAtSystemPoint(world, systemPoint));
+		if (storage != null) {
+			storage.save(systemPoint, system);
+		}
+		return system;
+	}
+	
+	private @Nullable SystemStorage getStorage() {
+		if (storage == null && world != null && StarrySkies.CONFIG.persistSystems) {
+			NbtCompound settings = new NbtCompound();
+			settings.putLong("Seed", StarrySkies.starryWorld.getSeed());
+			settings.putInt("SystemSize", SYSTEM_SIZE_CHUNKS);
+			settings.putInt("Density", SPHERE_DENSITY);
+			settings.putInt("MinDistance", MIN_DISTANCE_BETWEEN_SPHERES);
+			settings.putInt("FloorHeight", FLOOR_HEIGHT);
+			settings.putInt("BottomY", world.getBottomY());
+			settings.putInt("Height", world.getHeight());
+			storage = new SystemStorage(world, settings, SYSTEM_SIZE_CHUNKS);
+		}
+		return storage;
+	}
+	
+	public boolean isSystemCached(Point systemPos) {
+		return cache.contains(systemPos);
+	}
+	
+	public SystemCache<SpheroidSystem> getCache() {
+		return cache;
+	}
+	
+	public PendingDecorationWrites getPendingDecorationWrites() {
+		return pendingDecorationWrites;
 	}
 	
 	private @NotNull ChunkRandom getSystemRandom(@NotNull Point systemPoint) {
@@ -105,65 +163,96 @@ public class SystemGenerator {
 		return systemRandom;
 	}
 	
-	private @NotNull List<Spheroid> generateSpheroidsAtSystemPoint(World world, @NotNull Point systemPoint) {
+	/**
+	 * Places all spheroids of a system. Placing only draws the template, position and radius of each candidate.
+	 * Each spheroid gets its own seed, so it can be generated from its template later on, when a chunk first needs it
+	 * <p>
+	 * All candidates are drawn first and checked for collisions afterwards. With parallel system generation
+	 * enabled that happens on multiple threads, which does not change the resulting system.
+	 * In pack creator mode both ways get compared, logging a warning if they differ
+	 */
+	private @NotNull List<SpheroidPlacement> generateSpheroidsAtSystemPoint(World world, @NotNull Point systemPoint) {
 		int systemPointX = systemPoint.x;
 		int systemPointZ = systemPoint.y;
 		
 		ChunkRandom systemRandom = getSystemRandom(systemPoint);
+		// the seeds of the spheroids are derived from this one, independent of how many times systemRandom got used
+		long systemSeed = systemRandom.nextLong();
 		
 		// Places a log/leaf planet at 16, 16 in the overworld etc.
-		ArrayList<Spheroid> defaultSpheroids = getDefaultSpheroids(systemPointX, systemPointZ, systemRandom);
-		ArrayList<Spheroid> spheroids = new ArrayList<>(defaultSpheroids);
+		List<SpheroidPlacement> defaultSpheroids = getDefaultSpheroids(systemPointX, systemPointZ, systemSeed);
+		int spheroidIndex = defaultSpheroids.size();
 		
 		// try to create DENSITY planets in system
+		List<SpheroidPlacement> candidates = new ArrayList<>(SPHERE_DENSITY);
 		int worldHeight = world.getHeight();
 		for (int currentDensity = 0; currentDensity < SPHERE_DENSITY; currentDensity++) {
-			
-			// create new planets
-			Spheroid currentSpheroid = getRandomSpheroid(systemRandom);
+			Spheroid.Template template = getRandomTemplate(systemRandom);
+			long seed = getSpheroidSeed(systemSeed, spheroidIndex++);
+			float exactRadius = template.getRandomRadius(Support.restoreRandom(seed));
+			int radius = Math.round(exactRadius);
 			
 			// set position, check bounds with system edges on x and z
-			int xPos = Support.getRandomBetween(systemRandom, currentSpheroid.getRadius(), (SYSTEM_SIZE_CHUNKS * 16 - currentSpheroid.getRadius()));
+			int xPos = Support.getRandomBetween(systemRandom, radius, (SYSTEM_SIZE_CHUNKS * 16 - radius));
 			xPos += SYSTEM_SIZE_CHUNKS * 16 * systemPointX;
-			int zPos = Support.getRandomBetween(systemRandom, currentSpheroid.getRadius(), (SYSTEM_SIZE_CHUNKS * 16 - currentSpheroid.getRadius()));
+			int zPos = Support.getRandomBetween(systemRandom, radius, (SYSTEM_SIZE_CHUNKS * 16 - radius));
 			zPos += SYSTEM_SIZE_CHUNKS * 16 * systemPointZ;
-			int yPos = world.getBottomY() + FLOOR_HEIGHT + currentSpheroid.getRadius() + systemRandom.nextInt(((worldHeight - currentSpheroid.getRadius() * 2 - FLOOR_HEIGHT)));
-			BlockPos spherePos = new BlockPos(xPos, yPos, zPos);
+			int yPos = world.getBottomY() + FLOOR_HEIGHT + radius + systemRandom.nextInt(((worldHeight - radius * 2 - FLOOR_HEIGHT)));
 			
-			// check for collisions with existing spheroids
-			// if any collision, discard it
-			boolean discard = false;
-			for (Spheroid spheroid : spheroids) {
-				//each spheroid has to be at least pl1.radius + pl2.radius + min distance apart
-				int distMin = (spheroid.getRadius() + currentSpheroid.getRadius() + MIN_DISTANCE_BETWEEN_SPHERES);
-				double distSquared = spherePos.getSquaredDistance(spheroid.getPosition());
-				if (distSquared < distMin * distMin) {
-					discard = true;
-					break;
-				}
-			}
-			
-			if (!discard) {
-				// no intersections with other spheres => add it to the list
-				currentSpheroid.setPosition(spherePos);
-				spheroids.add(currentSpheroid);
+			candidates.add(new SpheroidPlacement(template, new BlockPos(xPos, yPos, zPos), exactRadius, seed));
+		}
+		
+		// only spheroids in neighboring cells can be close enough to collide
+		int originX = SYSTEM_SIZE_CHUNKS * 16 * systemPointX;
+		int originZ = SYSTEM_SIZE_CHUNKS * 16 * systemPointZ;
+		int cellSize = MIN_DISTANCE_BETWEEN_SPHERES + 2 * SpheroidTemplateLoader.getMaxTemplateSize();
+		List<SpheroidPlacement> accepted;
+		if (StarrySkies.CONFIG.parallelSystemGeneration) {
+			accepted = SpheroidConflictResolver.resolve(defaultSpheroids, candidates, originX, originZ, SYSTEM_SIZE_CHUNKS * 16, cellSize, MIN_DISTANCE_BETWEEN_SPHERES);
+			if (StarrySkies.CONFIG.packCreatorMode && !accepted.equals(placeOneByOne(defaultSpheroids, candidates, originX, originZ, cellSize))) {
+				StarrySkies.log(WARN, "The system at " + systemPointX + "," + systemPointZ + " got generated differently in parallel than it would have been on a single thread");
 			}
+		} else {
+			accepted = placeOneByOne(defaultSpheroids, candidates, originX, originZ, cellSize);
 		}
 		
-		StarrySkies.log(DEBUG, "Created a new system with " + spheroids.size() + " spheroids at system position " + systemPointX + "," + systemPointZ);
+		List<SpheroidPlacement> placements = new ArrayList<>(defaultSpheroids.size() + accepted.size());
+		placements.addAll(defaultSpheroids);
+		placements.addAll(accepted);
+		StarrySkies.log(DEBUG, "Created a new system with " + placements.size() + " spheroids at system position " + systemPointX + "," + systemPointZ);
 		
-		return spheroids;
+		return placements;
 	}
 	
-	private ArrayList<Spheroid> getDefaultSpheroids(int systemPointX, int systemPointZ, ChunkRandom random) {
-		ArrayList<Spheroid> defaultSpheroids = new ArrayList<>();
-		Spheroid spheroid;
+	/**
+	 * Places the candidates one after another, each one only if it does not collide with any placed before
+	 *
+	 * @return the candidates that get placed, in candidate order
+	 */
+	private @NotNull List<SpheroidPlacement> placeOneByOne(@NotNull List<SpheroidPlacement> defaultSpheroids, @NotNull List<SpheroidPlacement> candidates, int originX, int originZ, int cellSize) {
+		SpheroidPlacementGrid placementGrid = new SpheroidPlacementGrid(originX, originZ, SYSTEM_SIZE_CHUNKS * 16, cellSize, MIN_DISTANCE_BETWEEN_SPHERES);
+		for (SpheroidPlacement defaultSpheroid : defaultSpheroids) {
+			placementGrid.add(defaultSpheroid);
+		}
+		
+		List<SpheroidPlacement> accepted = new ArrayList<>();
+		for (SpheroidPlacement candidate : candidates) {
+			// check for collisions with existing spheroids
+			// if any collision, discard it
+			if (!placementGrid.collides(candidate.getPosition(), candidate.getRadius())) {
+				accepted.add(candidate);
+				placementGrid.add(candidate);
+			}
+		}
+		return accepted;
+	}
+	
+	private @NotNull List<SpheroidPlacement> getDefaultSpheroids(int systemPointX, int systemPointZ, long systemSeed) {
+		List<SpheroidPlacement> defaultSpheroids = new ArrayList<>();
 		switch (this.spheroidDimensionType) {
 			case NETHER:
 				if (systemPointX == 0 && systemPointZ == 0) {
-					spheroid = SpheroidTemplateLoader.STARTER_NETHER.generate(random);
-					spheroid.setPosition(new BlockPos(16, 70, 16));
-					defaultSpheroids.add(spheroid);
+					defaultSpheroids.add(placeDefaultSpheroid(SpheroidTemplateLoader.STARTER_NETHER, new BlockPos(16, 70, 16), systemSeed));
 				}
 				break;
 			case END:
@@ -171,29 +260,39 @@ public class SystemGenerator {
 					    || (systemPointX == -1 && systemPointZ == 0)
 						|| (systemPointX == 0 && systemPointZ == -1)
 						|| (systemPointX == -1 && systemPointZ == -1)) {
-					spheroid = SpheroidTemplateLoader.STARTER_END.generate(random);
-					spheroid.setPosition(new BlockPos(0, 30, 0));
-					defaultSpheroids.add(spheroid);
+					defaultSpheroids.add(placeDefaultSpheroid(SpheroidTemplateLoader.STARTER_END, new BlockPos(0, 30, 0), systemSeed));
 				}
 				break;
 			default:
 				if (systemPointX == 0 && systemPointZ == 0) {
-					spheroid = SpheroidTemplateLoader.STARTER_OVERWORLD.generate(random);
-					spheroid.setPosition(new BlockPos(16, 70, 16));
-					defaultSpheroids.add(spheroid);
+					defaultSpheroids.add(placeDefaultSpheroid(SpheroidTemplateLoader.STARTER_OVERWORLD, new BlockPos(16, 70, 16), systemSeed));
 				}
 		}
 		return defaultSpheroids;
 	}
 	
-	private Spheroid getRandomSpheroid(ChunkRandom systemRandom) {
+	// each system has a single default spheroid at most. It gets the first seed
+	private static @NotNull SpheroidPlacement placeDefaultSpheroid(@NotNull Spheroid.Template template, @NotNull BlockPos position, long systemSeed) {
+		long seed = getSpheroidSeed(systemSeed, 0);
+		return new SpheroidPlacement(template, position, template.getRandomRadius(Support.restoreRandom(seed)), seed);
+	}
+	
+	private Spheroid.Template getRandomTemplate(ChunkRandom systemRandom) {
 		Spheroid.Template template;
 		do {
 			template = SpheroidTemplateLoader.getWeightedRandomSpheroid(spheroidDimensionType, systemRandom);
 		} while (template == null);
 		
-		StarrySkies.log(DEBUG, "Created a new sphere of type " + template + " Next random: " + systemRandom.nextInt());
-		return template.generate(systemRandom);
+		StarrySkies.log(DEBUG, "Placing a new sphere of type " + template.getID());
+		return template;
+	}
+	
+	/**
+	 * The seed of the n-th spheroid of a system. The state of a random, see Support.restoreRandom()
+	 * Mixed, so the spheroids of a system do not get similar randoms
+	 */
+	private static long getSpheroidSeed(long systemSeed, int index) {
+		return Support.getRandomState(new ChunkRandom(new CheckedRandom(HashCommon.murmurHash3(systemSeed + index))));
 	}
 	
 }
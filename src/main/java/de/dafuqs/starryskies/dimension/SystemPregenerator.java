@@ -0,0 +1,404 @@
+package de.dafuqs.starryskies.dimension;
+
+import de.dafuqs.starryskies.StarrySkies;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.World;
+import org.apache.logging.log4j.Level;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Pre-generates the chunks of a square of systems around a center system.
+ * Systems are visited in a spiral around the center and all chunks of a system
+ * are generated before moving on to the next one, so each system only has to be generated once.
+ * <p>
+ * Chunks are requested by adding a ticket for them, a limited amount at a time, and only
+ * while the server keeps up with its tick rate. The server generates them like any other chunk
+ * it has to load, and each tick the pre-generator checks which of them are done, without waiting for them.
+ * The progress is stored in the world save, so a pre-generation can be resumed after a restart
+ */
+public class SystemPregenerator implements ServerTickEvents.EndTick, ServerLifecycleEvents.ServerStarted, ServerLifecycleEvents.ServerStopping {
+	
+	public static final SystemPregenerator INSTANCE = new SystemPregenerator();
+	
+	private static final ChunkTicketType<ChunkPos> TICKET_TYPE = ChunkTicketType.create("starry_skies_pregen", Comparator.comparingLong(ChunkPos::toLong));
+	private static final int VERSION = 1;
+	private final static int reportEveryXTicks = 30 * 20;
+	private final static int saveEveryXTicks = 60 * 20;
+	
+	private MinecraftServer server;
+	private @Nullable Task task;
+	private boolean running;
+	private int tickCounter;
+	
+	// for calculating the speed of the current run
+	private long runStartMillis;
+	private long runStartChunks;
+	
+	private SystemPregenerator() {
+	}
+	
+	/**
+	 * A pre-generation of a square of systems. Each chunk in it has an index,
+	 * that runs through the systems in a spiral and through the chunks of each system row by row
+	 */
+	private static class Task {
+		
+		private final RegistryKey<World> dimension;
+		private final int centerSystemX;
+		private final int centerSystemZ;
+		private final int radiusSystems;
+		private final int systemSizeChunks;
+		private final long totalChunks;
+		
+		// all chunks with a lower index have been requested
+		private long nextIndex;
+		// requested chunks that are not generated yet. Each of them holds a ticket while the task is running
+		private final SortedSet<Long> inFlight = new TreeSet<>();
+		
+		private Task(RegistryKey<World> dimension, int centerSystemX, int centerSystemZ, int radiusSystems, int systemSizeChunks, long nextIndex) {
+			this.dimension = dimension;
+			this.centerSystemX = centerSystemX;
+			this.centerSystemZ = centerSystemZ;
+			this.radiusSystems = radiusSystems;
+			this.systemSizeChunks = systemSizeChunks;
+			long systemsPerSide = 2L * radiusSystems + 1;
+			this.totalChunks = systemsPerSide * systemsPerSide * systemSizeChunks * systemSizeChunks;
+			this.nextIndex = Math.min(nextIndex, totalChunks);
+		}
+		
+		private boolean isFinished() {
+			return nextIndex >= totalChunks && inFlight.isEmpty();
+		}
+		
+		private long getGeneratedChunks() {
+			return nextIndex - inFlight.size();
+		}
+		
+		/**
+		 * Chunks requested before a restart might not have been generated yet.
+		 * A resumed task starts with the oldest one of them
+		 */
+		private long getResumeIndex() {
+			return inFlight.isEmpty() ? nextIndex : inFlight.first();
+		}
+		
+		private @NotNull ChunkPos getChunkPos(long index) {
+			int chunksPerSystem = systemSizeChunks * systemSizeChunks;
+			Point systemOffset = getSpiralOffset((int) (index / chunksPerSystem));
+			int chunkInSystem = (int) (index % chunksPerSystem);
+			int firstChunkX = (centerSystemX + systemOffset.x) * systemSizeChunks;
+			int firstChunkZ = (centerSystemZ + systemOffset.y) * systemSizeChunks;
+			return new ChunkPos(firstChunkX + chunkInSystem / systemSizeChunks, firstChunkZ + chunkInSystem % systemSizeChunks);
+		}
+		
+		/**
+		 * The offset of the n-th system of a square spiral around the center system.
+		 * Ring d around the center holds the systems n = (2d-1)² until n = (2d+1)² - 1
+		 */
+		private static @NotNull Point getSpiralOffset(int n) {
+			if (n == 0) {
+				return new Point(0, 0);
+			}
+			int ring = (int) Math.floor((Math.sqrt(n) + 1) / 2);
+			int indexInRing = n - (2 * ring - 1) * (2 * ring - 1);
+			int sideLength = 2 * ring;
+			int offsetOnSide = indexInRing % sideLength;
+			return switch (indexInRing / sideLength) {
+				case 0 -> new Point(-ring + offsetOnSide, -ring);
+				case 1 -> new Point(ring, -ring + offsetOnSide);
+				case 2 -> new Point(ring - offsetOnSide, ring);
+				default -> new Point(-ring, ring - offsetOnSide);
+			};
+		}
+		
+		private @NotNull NbtCompound toNbt() {
+			NbtCompound nbt = new NbtCompound();
+			nbt.putInt("Version", VERSION);
+			nbt.putString("Dimension", dimension.getValue().toString());
+			nbt.putInt("CenterX", centerSystemX);
+			nbt.putInt("CenterZ", centerSystemZ);
+			nbt.putInt("Radius", radiusSystems);
+			nbt.putInt("SystemSize", systemSizeChunks);
+			nbt.putLong("NextIndex", getResumeIndex());
+			return nbt;
+		}
+		
+		private static @Nullable Task fromNbt(@NotNull NbtCompound nbt) {
+			Identifier dimensionId = Identifier.tryParse(nbt.getString("Dimension"));
+			if (nbt.getInt("Version") != VERSION || dimensionId == null || nbt.getInt("SystemSize") <= 0) {
+				return null;
+			}
+			RegistryKey<World> dimension = RegistryKey.of(Registry.WORLD_KEY, dimensionId);
+			return new Task(dimension, nbt.getInt("CenterX"), nbt.getInt("CenterZ"), nbt.getInt("Radius"), nbt.getInt("SystemSize"), nbt.getLong("NextIndex"));
+		}
+		
+	}
+	
+	/**
+	 * Starts pre-generating a square of systems, replacing a paused pre-generation
+	 *
+	 * @param world         the starry world to pre-generate
+	 * @param centerSystem  the system in the middle of the square
+	 * @param radiusSystems how many systems the square reaches out from the center system in each direction
+	 * @return false if there is a pre-generation running already
+	 */
+	public boolean start(@NotNull ServerWorld world, @NotNull Point centerSystem, int radiusSystems) {
+		if (running) {
+			return false;
+		}
+		this.server = world.getServer();
+		this.task = new Task(world.getRegistryKey(), centerSystem.x, centerSystem.y, radiusSystems, StarrySkies.CONFIG.systemSizeChunks, 0);
+		startRunning();
+		StarrySkies.log(Level.INFO, "Started pre-generating " + task.totalChunks + " chunks in " + world.getRegistryKey().getValue());
+		return true;
+	}
+	
+	/**
+	 * Continues a paused pre-generation, including one that got paused by a restart
+	 *
+	 * @return false if there is nothing to resume
+	 */
+	public boolean resume() {
+		if (running || task == null) {
+			return false;
+		}
+		startRunning();
+		StarrySkies.log(Level.INFO, "Resumed pre-generating " + task.dimension.getValue() + " at chunk " + task.nextIndex + " of " + task.totalChunks);
+		return true;
+	}
+	
+	/**
+	 * Pauses the running pre-generation. It can be continued using resume()
+	 *
+	 * @return false if there is no pre-generation running
+	 */
+	public boolean stop() {
+		if (!running || task == null) {
+			return false;
+		}
+		running = false;
+		ServerWorld world = server.getWorld(task.dimension);
+		if (world != null) {
+			// the chunks are requested again once the task gets resumed
+			for (long index : task.inFlight) {
+				removeTicket(world, task.getChunkPos(index));
+			}
+		}
+		save(task);
+		StarrySkies.log(Level.INFO, "Paused pre-generating " + task.dimension.getValue() + ". " + getStatus());
+		return true;
+	}
+	
+	public boolean hasTask() {
+		return task != null;
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * @return The progress of the current pre-generation, its speed and how long it is going to take
+	 */
+	public @NotNull String getStatus() {
+		Task task = this.task;
+		if (task == null) {
+			return "No pre-generation in progress";
+		}
+		
+		long generatedChunks = task.getGeneratedChunks();
+		double percent = task.totalChunks == 0 ? 100 : generatedChunks * 100D / task.totalChunks;
+		String status = String.format("%s: %d / %d chunks (%.1f%%)", task.dimension.getValue(), generatedChunks, task.totalChunks, percent);
+		if (!running) {
+			return status + ", paused";
+		}
+		
+		double seconds = (Util.getMeasuringTimeMs() - runStartMillis) / 1000D;
+		double chunksPerSecond = seconds > 0 ? (generatedChunks - runStartChunks) / seconds : 0;
+		String eta = chunksPerSecond > 0 ? formatDuration((long) ((task.totalChunks - generatedChunks) / chunksPerSecond)) : "unknown";
+		return status + String.format(", %.1f chunks/s, ETA %s", chunksPerSecond, eta);
+	}
+	
+	private static @NotNull String formatDuration(long seconds) {
+		if (seconds >= 3600) {
+			return String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+		} else if (seconds >= 60) {
+			return String.format("%dm %02ds", seconds / 60, seconds % 60);
+		}
+		return seconds + "s";
+	}
+	
+	private void startRunning() {
+		running = true;
+		tickCounter = 0;
+		runStartMillis = Util.getMeasuringTimeMs();
+		runStartChunks = task.getGeneratedChunks();
+		
+		ServerWorld world = server.getWorld(task.dimension);
+		if (world != null) {
+			for (long index : task.inFlight) {
+				addTicket(world, task.getChunkPos(index));
+			}
+		}
+	}
+	
+	@Override
+	public void onEndTick(MinecraftServer minecraftServer) {
+		Task task = this.task;
+		if (!running || task == null) {
+			return;
+		}
+		
+		ServerWorld world = minecraftServer.getWorld(task.dimension);
+		if (world == null) {
+			StarrySkies.log(Level.WARN, "Could not pre-generate " + task.dimension.getValue() + ". It does not exist.");
+			running = false;
+			this.task = null;
+			return;
+		}
+		
+		// chunks that are fully generated do not need to be kept loaded anymore
+		// getWorldChunk() only returns chunks whose FULL future completed already, without waiting for it
+		// isChunkLoaded() would not do, since that is true as soon as the ticket level got applied
+		task.inFlight.removeIf(index -> {
+			ChunkPos chunkPos = task.getChunkPos(index);
+			if (world.getChunkManager().getWorldChunk(chunkPos.x, chunkPos.z) == null) {
+				return false;
+			}
+			removeTicket(world, chunkPos);
+			return true;
+		});
+		
+		// only request new chunks while the server keeps up
+		if (minecraftServer.getTickTime() <= StarrySkies.CONFIG.pregenMaxTickMilliseconds) {
+			while (task.inFlight.size() < Math.max(1, StarrySkies.CONFIG.pregenChunksInParallel) && task.nextIndex < task.totalChunks) {
+				task.inFlight.add(task.nextIndex);
+				addTicket(world, task.getChunkPos(task.nextIndex));
+				task.nextIndex++;
+			}
+		}
+		
+		if (task.isFinished()) {
+			StarrySkies.log(Level.INFO, "Finished pre-generating " + task.totalChunks + " chunks in " + task.dimension.getValue());
+			running = false;
+			this.task = null;
+			deleteSave();
+			return;
+		}
+		
+		tickCounter++;
+		if (tickCounter % reportEveryXTicks == 0) {
+			StarrySkies.log(Level.INFO, "Pre-generating " + getStatus());
+		}
+		if (tickCounter % saveEveryXTicks == 0) {
+			save(task);
+		}
+	}
+	
+	/**
+	 * Makes the server load the chunk, generating it up to FULL, without waiting for it.
+	 * The ticket gets picked up the next time the chunk manager updates its chunks.
+	 * It has to stay until the chunk is done, or the chunk could get unloaded while it is still generating
+	 */
+	private static void addTicket(@NotNull ServerWorld world, @NotNull ChunkPos chunkPos) {
+		world.getChunkManager().addTicket(TICKET_TYPE, chunkPos, 0, chunkPos);
+	}
+	
+	private static void removeTicket(@NotNull ServerWorld world, @NotNull ChunkPos chunkPos) {
+		world.getChunkManager().removeTicket(TICKET_TYPE, chunkPos, 0, chunkPos);
+	}
+	
+	@Override
+	public void onServerStarted(MinecraftServer minecraftServer) {
+		this.server = minecraftServer;
+		File file = getSaveFile();
+		if (file == null || !file.exists()) {
+			return;
+		}
+		
+		try {
+			Task storedTask = Task.fromNbt(NbtIo.readCompressed(file));
+			if (storedTask == null) {
+				StarrySkies.log(Level.WARN, "Ignoring the stored pre-generation progress. It was stored by an incompatible version.");
+				return;
+			}
+			this.task = storedTask;
+			this.running = false;
+			StarrySkies.log(Level.INFO, "Found an unfinished pre-generation of " + storedTask.dimension.getValue() + ". Continue it using '/starryskies_pregen resume'. " + getStatus());
+		} catch (IOException | RuntimeException e) {
+			StarrySkies.log(Level.WARN, "Could not read the stored pre-generation progress: " + e);
+		}
+	}
+	
+	@Override
+	public void onServerStopping(MinecraftServer minecraftServer) {
+		if (task != null) {
+			save(task);
+		}
+		task = null;
+		running = false;
+		server = null;
+	}
+	
+	private @Nullable File getSaveFile() {
+		if (server == null) {
+			return null;
+		}
+		return server.getSavePath(WorldSavePath.ROOT).resolve("starry_skies").resolve("pregen.dat").toFile();
+	}
+	
+	// the progress is only a handful of numbers, so it is written right away on the server thread
+	// that way an older write still waiting on another thread can never overwrite it
+	private void save(@NotNull Task task) {
+		File file = getSaveFile();
+		if (file == null) {
+			return;
+		}
+		try {
+			NbtCompound nbt = task.toNbt();
+			Path directory = file.toPath().getParent();
+			Files.createDirectories(directory);
+			File tempFile = directory.resolve(file.getName() + ".tmp").toFile();
+			NbtIo.writeCompressed(nbt, tempFile);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			StarrySkies.log(Level.WARN, "Could not store the pre-generation progress: " + e);
+		}
+	}
+	
+	private void deleteSave() {
+		File file = getSaveFile();
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			StarrySkies.log(Level.WARN, "Could not delete the pre-generation progress: " + e);
+		}
+	}
+	
+}
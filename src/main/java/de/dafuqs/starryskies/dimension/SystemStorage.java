@@ -0,0 +1,189 @@
+package de.dafuqs.starryskies.dimension;
+
+import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.data_loaders.SpheroidTemplateLoader;
+import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.world.dimension.DimensionType;
+import org.apache.logging.log4j.Level;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Persists the placement of each generated system in the save directory of its dimension,
+ * so systems do not have to be generated from scratch again after a restart.
+ * For every spheroid the template id, position, radius and seed are stored.
+ * Using the seed the spheroid can be generated from its template again when it is needed,
+ * without having to run all the placement and collision checks of its system
+ */
+public class SystemStorage {
+	
+	private static final int VERSION = 3;
+	
+	private final Path directory;
+	private final NbtCompound settings;
+	private final int systemSizeChunks;
+	
+	/**
+	 * @param world            The world the systems are stored for
+	 * @param settings         All the settings that influence system generation.
+	 *                         If they differ from the settings a stored system was generated with, that system is generated again
+	 * @param systemSizeChunks The width of a system in chunks
+	 */
+	public SystemStorage(@NotNull ServerWorld world, NbtCompound settings, int systemSizeChunks) {
+		Path worldDirectory = world.getServer().getSavePath(WorldSavePath.ROOT);
+		this.directory = DimensionType.getSaveDirectory(world.getRegistryKey(), worldDirectory).resolve("starry_skies").resolve("systems");
+		this.settings = settings;
+		this.systemSizeChunks = systemSizeChunks;
+	}
+	
+	private @NotNull File getFile(@NotNull Point systemPoint) {
+		return directory.resolve(systemPoint.x + "." + systemPoint.y + ".dat").toFile();
+	}
+	
+	/**
+	 * Loads the system at the given point, if it has been stored before
+	 *
+	 * @param systemPoint The system point
+	 * @return The stored system or null, if there is no stored system or it is outdated
+	 */
+	public @Nullable SpheroidSystem load(@NotNull Point systemPoint) {
+		File file = getFile(systemPoint);
+		if (!file.exists()) {
+			return null;
+		}
+		
+		try {
+			NbtCompound nbt = NbtIo.readCompressed(file);
+			if (nbt.getInt("Version") != VERSION || !settings.equals(nbt.getCompound("Settings"))) {
+				StarrySkies.log(Level.DEBUG, "Stored system at " + systemPoint.x + "," + systemPoint.y + " was generated with different settings. Generating it again.");
+				return null;
+			}
+			
+			NbtList templateIds = nbt.getList("Templates", NbtElement.STRING_TYPE);
+			int[] templateMinSizes = nbt.getIntArray("TemplateMinSizes");
+			int[] templateMaxSizes = nbt.getIntArray("TemplateMaxSizes");
+			Spheroid.Template[] templates = new Spheroid.Template[templateIds.size()];
+			for (int i = 0; i < templates.length; i++) {
+				templates[i] = SpheroidTemplateLoader.getTemplate(Identifier.tryParse(templateIds.getString(i)));
+				if (templates[i] == null) {
+					StarrySkies.log(Level.DEBUG, "Stored system at " + systemPoint.x + "," + systemPoint.y + " uses the unknown spheroid " + templateIds.getString(i) + ". Generating it again.");
+					return null;
+				}
+				if (templates[i].getMinSize() != templateMinSizes[i] || templates[i].getMaxSize() != templateMaxSizes[i]) {
+					// the template has been changed since the system was stored
+					StarrySkies.log(Level.DEBUG, "Stored system at " + systemPoint.x + "," + systemPoint.y + " uses a modified spheroid " + templateIds.getString(i) + ". Generating it again.");
+					return null;
+				}
+			}
+			
+			int[] storedTemplateIndices = nbt.getIntArray("Template");
+			int[] xs = nbt.getIntArray("X");
+			int[] ys = nbt.getIntArray("Y");
+			int[] zs = nbt.getIntArray("Z");
+			int[] radiusBits = nbt.getIntArray("Radius");
+			long[] seeds = nbt.getLongArray("Seed");
+			
+			int count = storedTemplateIndices.length;
+			if (xs.length != count || ys.length != count || zs.length != count || radiusBits.length != count || seeds.length != count) {
+				StarrySkies.log(Level.WARN, "Stored system at " + systemPoint.x + "," + systemPoint.y + " is incomplete. Generating it again.");
+				return null;
+			}
+			
+			short[] templateIndices = new short[count];
+			float[] radii = new float[count];
+			for (int i = 0; i < count; i++) {
+				if (storedTemplateIndices[i] < 0 || storedTemplateIndices[i] >= templates.length) {
+					StarrySkies.log(Level.WARN, "Stored system at " + systemPoint.x + "," + systemPoint.y + " is corrupted. Generating it again.");
+					return null;
+				}
+				templateIndices[i] = (short) storedTemplateIndices[i];
+				radii[i] = Float.intBitsToFloat(radiusBits[i]);
+			}
+			
+			StarrySkies.log(Level.DEBUG, "Loaded stored system with " + count + " spheroids at system position " + systemPoint.x + "," + systemPoint.y);
+			return new SpheroidSystem(systemPoint, systemSizeChunks, templates, templateIndices, xs, ys, zs, radii, seeds);
+		} catch (IOException | RuntimeException e) {
+			StarrySkies.log(Level.WARN, "Could not read stored system at " + systemPoint.x + "," + systemPoint.y + ". Generating it again. " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Stores the system at the given point. Writing the file happens on the IO worker
+	 *
+	 * @param systemPoint The system point
+	 * @param system      The system
+	 */
+	public void save(@NotNull Point systemPoint, @NotNull SpheroidSystem system) {
+		NbtCompound nbt = new NbtCompound();
+		nbt.putInt("Version", VERSION);
+		nbt.put("Settings", settings.copy());
+		
+		// the templates of a system are already interned, so their table can be stored as is
+		Spheroid.Template[] templates = system.getTemplates();
+		NbtList templateIds = new NbtList();
+		int[] templateMinSizes = new int[templates.length];
+		int[] templateMaxSizes = new int[templates.length];
+		for (int i = 0; i < templates.length; i++) {
+			templateIds.add(NbtString.of(templates[i].getID().toString()));
+			templateMinSizes[i] = templates[i].getMinSize();
+			templateMaxSizes[i] = templates[i].getMaxSize();
+		}
+		
+		int[] templateIndices = new int[system.size()];
+		int[] xs = new int[system.size()];
+		int[] ys = new int[system.size()];
+		int[] zs = new int[system.size()];
+		int[] radii = new int[system.size()];
+		long[] seeds = new long[system.size()];
+		for (int i = 0; i < system.size(); i++) {
+			templateIndices[i] = system.getTemplateIndex(i);
+			xs[i] = system.getX(i);
+			ys[i] = system.getY(i);
+			zs[i] = system.getZ(i);
+			radii[i] = Float.floatToIntBits(system.getExactRadius(i));
+			seeds[i] = system.getSeed(i);
+		}
+		
+		nbt.put("Templates", templateIds);
+		nbt.putIntArray("TemplateMinSizes", templateMinSizes);
+		nbt.putIntArray("TemplateMaxSizes", templateMaxSizes);
+		nbt.putIntArray("Template", templateIndices);
+		nbt.putIntArray("X", xs);
+		nbt.putIntArray("Y", ys);
+		nbt.putIntArray("Z", zs);
+		nbt.putIntArray("Radius", radii);
+		nbt.putLongArray("Seed", seeds);
+		
+		Util.getIoWorkerExecutor().execute(() -> write(systemPoint, nbt));
+	}
+	
+	private void write(@NotNull Point systemPoint, NbtCompound nbt) {
+		try {
+			Files.createDirectories(directory);
+			File file = getFile(systemPoint);
+			File tempFile = directory.resolve(file.getName() + ".tmp").toFile();
+			NbtIo.writeCompressed(nbt, tempFile);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			StarrySkies.log(Level.WARN, "Could not store system at " + systemPoint.x + "," + systemPoint.y + ": " + e);
+		}
+	}
+	
+}
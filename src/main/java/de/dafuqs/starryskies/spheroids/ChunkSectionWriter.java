@@ -0,0 +1,347 @@
+package de.dafuqs.starryskies.spheroids;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.WrapperProtoChunk;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Writes the blocks of spheroids into a chunk that is still being generated.
+ * Instead of going through chunk.setBlockState() for every single block it writes
+ * straight into the sections, only locking each section once while writing into it.
+ * Heightmaps get updated once per column when the writer gets flushed, and so do the light sources
+ * of the chunk, since ProtoChunk does not expect them to be added from multiple threads at once.
+ * <p>
+ * Chunks that are generated already fall back to chunk.setBlockState(),
+ * since those need to take care of lighting, too.
+ * Until flush() is called, blocks must not be set through the chunk directly
+ */
+public class ChunkSectionWriter {
+	
+	private final Chunk chunk;
+	private final boolean direct;
+	private final int startX;
+	private final int startZ;
+	private final int bottomY;
+	private final int topY;
+	
+	private ChunkSection lockedSection;
+	private int lockedSectionIndex = -1;
+	
+	// sections that have been replaced using fillSection() and still only contain that state
+	private final BlockState[] filledSectionStates;
+	
+	// the range of y each column got written in, for updating the heightmaps
+	private final int[] minWrittenY = new int[16 * 16];
+	private final int[] maxWrittenY = new int[16 * 16];
+	private boolean written;
+	
+	// positions of blocks that emit light, added to the chunk on flush()
+	private final LongArrayList lightSources = new LongArrayList();
+	
+	public ChunkSectionWriter(@NotNull Chunk chunk) {
+		this.chunk = chunk;
+		this.direct = chunk instanceof ProtoChunk && !(chunk instanceof WrapperProtoChunk) && !chunk.getStatus().isAtLeast(ChunkStatus.FEATURES);
+		this.startX = chunk.getPos().getStartX();
+		this.startZ = chunk.getPos().getStartZ();
+		this.bottomY = chunk.getBottomY();
+		this.topY = chunk.getTopY();
+		this.filledSectionStates = new BlockState[chunk.countVerticalSections()];
+		resetWrittenColumns();
+	}
+	
+	private void resetWrittenColumns() {
+		for (int i = 0; i < minWrittenY.length; i++) {
+			minWrittenY[i] = Integer.MAX_VALUE;
+			maxWrittenY[i] = Integer.MIN_VALUE;
+		}
+		written = false;
+	}
+	
+	/**
+	 * Same as chunk.setBlockState(new BlockPos(x, y, z), state, false)
+	 * Positions outside of the chunk are ignored
+	 */
+	public void setBlockState(int x, int y, int z, @NotNull BlockState state) {
+		int localX = x - startX;
+		int localZ = z - startZ;
+		if (y < bottomY || y >= topY || localX < 0 || localX > 15 || localZ < 0 || localZ > 15) {
+			return;
+		}
+		if (!direct) {
+			chunk.setBlockState(new BlockPos(x, y, z), state, false);
+			return;
+		}
+		
+		if (!lockSection(y, state)) {
+			return;
+		}
+		
+		lockedSection.setBlockState(localX, y & 15, localZ, state, false);
+		if (state.getLuminance() > 0) {
+			lightSources.add(BlockPos.asLong(x, y, z));
+		}
+		markWritten(localX, localZ, y, y);
+	}
+	
+	/**
+	 * Same as calling setBlockState() for every y from minY to maxY (both inclusive)
+	 * Only checks the bounds once and locks each section of the column once
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, @NotNull BlockState state) {
+		int localX = x - startX;
+		int localZ = z - startZ;
+		minY = Math.max(minY, bottomY);
+		maxY = Math.min(maxY, topY - 1);
+		if (minY > maxY || localX < 0 || localX > 15 || localZ < 0 || localZ > 15) {
+			return;
+		}
+		if (!direct) {
+			BlockPos.Mutable pos = new BlockPos.Mutable();
+			for (int y = minY; y <= maxY; y++) {
+				chunk.setBlockState(pos.set(x, y, z), state, false);
+			}
+			return;
+		}
+		
+		boolean luminous = state.getLuminance() > 0;
+		for (int y = minY; y <= maxY; y++) {
+			if (!lockSection(y, state)) {
+				// nothing to write in this section. Continue with the next one
+				y |= 15;
+				continue;
+			}
+			lockedSection.setBlockState(localX, y & 15, localZ, state, false);
+			if (luminous) {
+				lightSources.add(BlockPos.asLong(x, y, z));
+			}
+		}
+		markWritten(localX, localZ, minY, maxY);
+	}
+	
+	/**
+	 * Makes sure the section containing y is the locked one
+	 *
+	 * @return false if the state does not need to be written into that section at all
+	 */
+	private boolean lockSection(int y, @NotNull BlockState state) {
+		int sectionIndex = chunk.getSectionIndex(y);
+		if (sectionIndex != lockedSectionIndex) {
+			ChunkSection section = chunk.getSection(sectionIndex);
+			// like ProtoChunk: air does not need to be written into empty sections
+			if (section.isEmpty() && state.isOf(Blocks.AIR)) {
+				return false;
+			}
+			// the section has been filled with that state as a whole already
+			if (filledSectionStates[sectionIndex] == state) {
+				return false;
+			}
+			filledSectionStates[sectionIndex] = null;
+			unlockSection();
+			section.lock();
+			lockedSection = section;
+			lockedSectionIndex = sectionIndex;
+		}
+		return true;
+	}
+	
+	private void markWritten(int localX, int localZ, int minY, int maxY) {
+		int column = localX * 16 + localZ;
+		minWrittenY[column] = Math.min(minWrittenY[column], minY);
+		maxWrittenY[column] = Math.max(maxWrittenY[column], maxY);
+		written = true;
+	}
+	
+	/**
+	 * Replaces a whole section with one that only contains the given state, instead of writing all 4096 blocks
+	 * Only works for states that do not emit light, since light sources would have to be tracked block by block
+	 *
+	 * @param sectionCoord the y coordinate of the section
+	 * @return false if the section could not be replaced and has to be written block by block instead
+	 */
+	public boolean fillSection(int sectionCoord, @NotNull BlockState state) {
+		int sectionIndex = chunk.sectionCoordToIndex(sectionCoord);
+		if (!direct || state.getLuminance() > 0 || sectionIndex < 0 || sectionIndex >= filledSectionStates.length) {
+			return false;
+		}
+		if (sectionIndex == lockedSectionIndex) {
+			unlockSection();
+		}
+		
+		ChunkSection[] sections = chunk.getSectionArray();
+		if (sections[sectionIndex].isEmpty() && state.isOf(Blocks.AIR)) {
+			// like ProtoChunk: an empty section holds nothing but air already
+			return true;
+		}
+		PalettedContainer<BlockState> blockStateContainer = new PalettedContainer<>(Block.STATE_IDS, state, PalettedContainer.PaletteProvider.BLOCK_STATE);
+		sections[sectionIndex] = new ChunkSection(sectionCoord, blockStateContainer, sections[sectionIndex].getBiomeContainer());
+		filledSectionStates[sectionIndex] = state;
+		
+		int minY = sectionCoord << 4;
+		for (int localX = 0; localX < 16; localX++) {
+			for (int localZ = 0; localZ < 16; localZ++) {
+				markWritten(localX, localZ, minY, minY + 15);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Replaces a whole section with a copy of the given block states, instead of writing them block by block
+	 * Only possible if the template covers the whole section, or the section does not contain anything but air yet,
+	 * since everything else in it would be lost. The template must not contain states that emit light
+	 *
+	 * @param sectionCoord the y coordinate of the section
+	 * @param blockStates  the block states of the section
+	 * @param minY         the lowest y the template has blocks at
+	 * @param maxY         the highest y the template has blocks at
+	 * @return false if the section could not be replaced and has to be written block by block instead
+	 */
+	public boolean copySection(int sectionCoord, @NotNull PalettedContainer<BlockState> blockStates, int minY, int maxY) {
+		int sectionIndex = chunk.sectionCoordToIndex(sectionCoord);
+		if (!direct || sectionIndex < 0 || sectionIndex >= filledSectionStates.length) {
+			return false;
+		}
+		ChunkSection[] sections = chunk.getSectionArray();
+		boolean coversSection = minY <= sectionCoord << 4 && maxY >= (sectionCoord << 4) + 15;
+		if (!coversSection && sections[sectionIndex].getBlockStateContainer().hasAny(state -> !state.isOf(Blocks.AIR))) {
+			return false;
+		}
+		if (sectionIndex == lockedSectionIndex) {
+			unlockSection();
+		}
+		
+		sections[sectionIndex] = new ChunkSection(sectionCoord, blockStates.copy(), sections[sectionIndex].getBiomeContainer());
+		filledSectionStates[sectionIndex] = null;
+		for (int localX = 0; localX < 16; localX++) {
+			for (int localZ = 0; localZ < 16; localZ++) {
+				markWritten(localX, localZ, minY, maxY);
+			}
+		}
+		return true;
+	}
+	
+	public void setBlockState(@NotNull BlockPos pos, @NotNull BlockState state) {
+		setBlockState(pos.getX(), pos.getY(), pos.getZ(), state);
+	}
+	
+	public int getBottomY() {
+		return bottomY;
+	}
+	
+	public int getTopY() {
+		return topY;
+	}
+	
+	public BlockState getBlockState(int x, int y, int z) {
+		if (y < bottomY || y >= topY) {
+			return Blocks.VOID_AIR.getDefaultState();
+		}
+		return chunk.getSection(chunk.getSectionIndex(y)).getBlockState((x - startX) & 15, y & 15, (z - startZ) & 15);
+	}
+	
+	/**
+	 * If blocks are written straight into the sections. Writers of chunks that are not
+	 * must not be used from multiple threads at once, not even for different sections
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+	
+	/**
+	 * Releases the section that is currently written into, without updating the heightmaps yet.
+	 * Writing another block locks its section again
+	 */
+	public void unlockSection() {
+		if (lockedSection != null) {
+			lockedSection.unlock();
+			lockedSection = null;
+			lockedSectionIndex = -1;
+		}
+	}
+	
+	/**
+	 * Releases the section that is currently written into, adds the light sources and updates
+	 * the heightmaps of all columns that got written into since the last flush
+	 * Must not be called while other writers of the same chunk are still writing
+	 */
+	public void flush() {
+		unlockSection();
+		addLightSources();
+		if (!written) {
+			return;
+		}
+		
+		EnumSet<Heightmap.Type> types = chunk.getStatus().getHeightmapTypes();
+		EnumSet<Heightmap.Type> missingTypes = EnumSet.copyOf(types);
+		for (Map.Entry<Heightmap.Type, Heightmap> entry : chunk.getHeightmaps()) {
+			missingTypes.remove(entry.getKey());
+		}
+		if (!missingTypes.isEmpty()) {
+			// like ProtoChunk: heightmaps that do not exist yet get calculated from all blocks in the chunk
+			Heightmap.populateHeightmaps(chunk, missingTypes);
+		}
+		
+		for (Heightmap.Type type : types) {
+			if (missingTypes.contains(type)) {
+				continue;
+			}
+			Heightmap heightmap = chunk.getHeightmap(type);
+			Predicate<BlockState> predicate = type.getBlockPredicate();
+			for (int localX = 0; localX < 16; localX++) {
+				for (int localZ = 0; localZ < 16; localZ++) {
+					int column = localX * 16 + localZ;
+					if (minWrittenY[column] <= maxWrittenY[column]) {
+						updateColumn(heightmap, predicate, localX, localZ, minWrittenY[column], maxWrittenY[column]);
+					}
+				}
+			}
+		}
+		resetWrittenColumns();
+	}
+	
+	private void addLightSources() {
+		if (lightSources.isEmpty()) {
+			return;
+		}
+		ProtoChunk protoChunk = (ProtoChunk) chunk;
+		for (int i = 0; i < lightSources.size(); i++) {
+			protoChunk.addLightSource(BlockPos.fromLong(lightSources.getLong(i)));
+		}
+		lightSources.clear();
+	}
+	
+	/**
+	 * Brings the heightmap of a single column up to date. The same as calling heightmap.trackUpdate()
+	 * for every written block, but only looking at the highest relevant one
+	 */
+	private void updateColumn(@NotNull Heightmap heightmap, @NotNull Predicate<BlockState> predicate, int localX, int localZ, int minY, int maxY) {
+		int previousTopY = heightmap.get(localX, localZ) - 1;
+		for (int y = maxY; y >= minY && y >= previousTopY; y--) {
+			BlockState state = getBlockState(startX + localX, y, startZ + localZ);
+			if (predicate.test(state)) {
+				heightmap.trackUpdate(localX, y, localZ, state);
+				return;
+			}
+		}
+		
+		// the previous top block might have been replaced. The heightmap then searches for the next lower one itself
+		if (previousTopY >= minY && previousTopY <= maxY) {
+			heightmap.trackUpdate(localX, previousTopY, localZ, getBlockState(startX + localX, previousTopY, startZ + localZ));
+		}
+	}
+	
+}
@@ -0,0 +1,78 @@
+package de.dafuqs.starryskies.spheroids;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.state.property.Properties;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects the blocks a decorator places while decorating a spheroid in a chunk and writes them in a single pass
+ * <p>
+ * Each position is written once, with the block placed there last, and only if that differs from the block
+ * already in the world. The chunk is not live yet, so there is no use in updating neighbors and syncing every block.
+ * Only fluids and waterloggable blocks get updates and are marked for post-processing, so they flow and connect
+ * once the chunk gets loaded.
+ * <p>
+ * Blocks placed or looked at without the buffer, like block entities that get filled afterwards,
+ * need a flush() first, so the buffered blocks are in place and do not replace them later on
+ */
+public class DecorationWriteBuffer {
+	
+	private final RegionClippingWriter writer;
+	// keeps the order of the first placement at each position, with the block of the last one
+	private final Long2ObjectLinkedOpenHashMap<BlockState> placements = new Long2ObjectLinkedOpenHashMap<>();
+	
+	public DecorationWriteBuffer(@NotNull RegionClippingWriter writer) {
+		this.writer = writer;
+	}
+	
+	public RegionClippingWriter getWriter() {
+		return writer;
+	}
+	
+	public void setBlockState(@NotNull BlockPos blockPos, @NotNull BlockState blockState) {
+		placements.put(blockPos.asLong(), blockState);
+	}
+	
+	/**
+	 * @return the block placed at that position, if there is one. Otherwise the block in the world
+	 */
+	public BlockState getBlockState(@NotNull BlockPos blockPos) {
+		BlockState blockState = placements.get(blockPos.asLong());
+		return blockState == null ? writer.getWorld().getBlockState(blockPos) : blockState;
+	}
+	
+	/**
+	 * Writes all placed blocks into the world. Blocks outside the bounds of the writer get placed later on
+	 */
+	public void flush() {
+		BlockPos.Mutable mutable = new BlockPos.Mutable();
+		for (Long2ObjectMap.Entry<BlockState> placement : placements.long2ObjectEntrySet()) {
+			mutable.set(placement.getLongKey());
+			BlockState blockState = placement.getValue();
+			if (!writer.isInBounds(mutable)) {
+				writer.setBlockState(mutable, blockState, Block.NOTIFY_LISTENERS);
+				continue;
+			}
+			if (writer.getWorld().getBlockState(mutable) == blockState) {
+				continue;
+			}
+			
+			if (needsUpdates(blockState)) {
+				writer.setBlockState(mutable, blockState, Block.NOTIFY_ALL);
+				writer.getWorld().getChunk(mutable).markBlockForPostProcessing(mutable);
+			} else {
+				writer.setBlockState(mutable, blockState, Block.NOTIFY_LISTENERS);
+			}
+		}
+		placements.clear();
+	}
+	
+	private static boolean needsUpdates(@NotNull BlockState blockState) {
+		return !blockState.getFluidState().isEmpty() || blockState.contains(Properties.WATERLOGGED);
+	}
+	
+}
@@ -0,0 +1,127 @@
+package de.dafuqs.starryskies.spheroids;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.chunk.ChunkStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The blocks decorators placed outside the chunks the world accepted blocks in, see RegionClippingWriter
+ * They are placed once their chunk gets decorated, right before its own decorations.
+ * <p>
+ * Blocks in chunks that were decorated already are dropped. So are the blocks of the oldest chunks,
+ * once too many chunks have blocks waiting, since chunks that never get generated would keep theirs forever
+ * <p>
+ * Pending blocks are only kept in memory, not saved with the world. When the server stops they are all
+ * counted as dropped, see dropAll(). Chunks decorated after a restart miss the blocks their neighbors left for them
+ */
+public class PendingDecorationWrites {
+	
+	private static final int MAX_PENDING_CHUNKS = 1024;
+	
+	private final AtomicLong clipped = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	
+	private final LinkedHashMap<Long, Long2ObjectLinkedOpenHashMap<BlockState>> pendingChunks = new LinkedHashMap<>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Long2ObjectLinkedOpenHashMap<BlockState>> eldest) {
+			if (size() > MAX_PENDING_CHUNKS) {
+				dropped.addAndGet(eldest.getValue().size());
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	/**
+	 * Remembers a block that could not be placed, because it is too far away from the chunk being decorated
+	 */
+	public void clip(@NotNull StructureWorldAccess world, @NotNull BlockPos blockPos, @NotNull BlockState blockState) {
+		clipped.incrementAndGet();
+		
+		int chunkX = blockPos.getX() >> 4;
+		int chunkZ = blockPos.getZ() >> 4;
+		if (world.isChunkLoaded(chunkX, chunkZ) && world.getChunk(chunkX, chunkZ).getStatus().isAtLeast(ChunkStatus.FEATURES)) {
+			// that chunk was decorated already
+			dropped.incrementAndGet();
+			return;
+		}
+		
+		synchronized (pendingChunks) {
+			pendingChunks.computeIfAbsent(ChunkPos.toLong(chunkX, chunkZ), chunkPos -> new Long2ObjectLinkedOpenHashMap<>()).put(blockPos.asLong(), blockState);
+		}
+	}
+	
+	/**
+	 * Counts a block that could not be placed and can not be placed later on either
+	 */
+	public void drop() {
+		clipped.incrementAndGet();
+		dropped.incrementAndGet();
+	}
+	
+	/**
+	 * Drops all blocks still waiting for their chunk. Called when the server stops, since they are not saved
+	 *
+	 * @return how many blocks were dropped
+	 */
+	public long dropAll() {
+		long count = 0;
+		synchronized (pendingChunks) {
+			for (Long2ObjectLinkedOpenHashMap<BlockState> writes : pendingChunks.values()) {
+				count += writes.size();
+			}
+			pendingChunks.clear();
+		}
+		dropped.addAndGet(count);
+		return count;
+	}
+	
+	/**
+	 * Places the blocks waiting for the chunk. Called when the chunk gets decorated
+	 */
+	public void complete(@NotNull StructureWorldAccess world, @NotNull ChunkPos chunkPos) {
+		Long2ObjectLinkedOpenHashMap<BlockState> writes;
+		synchronized (pendingChunks) {
+			writes = pendingChunks.remove(chunkPos.toLong());
+		}
+		if (writes == null) {
+			return;
+		}
+		
+		DecorationWriteBuffer buffer = new DecorationWriteBuffer(new RegionClippingWriter(world));
+		for (Long2ObjectMap.Entry<BlockState> write : writes.long2ObjectEntrySet()) {
+			buffer.setBlockState(BlockPos.fromLong(write.getLongKey()), write.getValue());
+		}
+		buffer.flush();
+		completed.addAndGet(writes.size());
+	}
+	
+	public long getClippedCount() {
+		return clipped.get();
+	}
+	
+	public long getCompletedCount() {
+		return completed.get();
+	}
+	
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+	
+	public int getPendingChunkCount() {
+		synchronized (pendingChunks) {
+			return pendingChunks.size();
+		}
+	}
+	
+}
@@ -0,0 +1,92 @@
+package de.dafuqs.starryskies.spheroids;
+
+import de.dafuqs.starryskies.dimension.SystemGenerator;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.StructureWorldAccess;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Places the blocks of decorators, as long as they are inside the chunks the world accepts blocks in
+ * <p>
+ * While decorating a chunk the world is a ChunkRegion that only accepts blocks in its center chunk
+ * and the chunks right next to it. Blocks further out are not placed, but remembered in the
+ * PendingDecorationWrites of the world, to be placed once their chunk gets decorated.
+ * Checking the bounds is cheap, compared to the region logging an error for each of those blocks
+ */
+public class RegionClippingWriter {
+	
+	// the chunks around the center of a ChunkRegion it accepts blocks in while decorating
+	private static final int PLACEMENT_RADIUS = 1;
+	
+	private final StructureWorldAccess world;
+	private final int minChunkX;
+	private final int maxChunkX;
+	private final int minChunkZ;
+	private final int maxChunkZ;
+	private PendingDecorationWrites pendingWrites;
+	
+	public RegionClippingWriter(@NotNull StructureWorldAccess world) {
+		this.world = world;
+		if (world instanceof ChunkRegion chunkRegion) {
+			ChunkPos centerPos = chunkRegion.getCenterPos();
+			this.minChunkX = centerPos.x - PLACEMENT_RADIUS;
+			this.maxChunkX = centerPos.x + PLACEMENT_RADIUS;
+			this.minChunkZ = centerPos.z - PLACEMENT_RADIUS;
+			this.maxChunkZ = centerPos.z + PLACEMENT_RADIUS;
+		} else {
+			this.minChunkX = Integer.MIN_VALUE;
+			this.maxChunkX = Integer.MAX_VALUE;
+			this.minChunkZ = Integer.MIN_VALUE;
+			this.maxChunkZ = Integer.MAX_VALUE;
+		}
+	}
+	
+	public StructureWorldAccess getWorld() {
+		return world;
+	}
+	
+	public boolean isInBounds(@NotNull BlockPos blockPos) {
+		int chunkX = ChunkSectionPos.getSectionCoord(blockPos.getX());
+		int chunkZ = ChunkSectionPos.getSectionCoord(blockPos.getZ());
+		return chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ;
+	}
+	
+	/**
+	 * Places the block, if it is in bounds. Otherwise it gets placed once its chunk gets decorated
+	 *
+	 * @return true if the block was placed right away
+	 */
+	public boolean setBlockState(@NotNull BlockPos blockPos, @NotNull BlockState blockState, int flags) {
+		if (isInBounds(blockPos)) {
+			return world.setBlockState(blockPos, blockState, flags);
+		}
+		getPendingWrites().clip(world, blockPos, blockState);
+		return false;
+	}
+	
+	/**
+	 * For blocks that can not be placed later on, like ones with block entities that get filled right away
+	 * Blocks out of bounds count as dropped
+	 *
+	 * @return true if the block can be placed
+	 */
+	public boolean canPlaceNow(@NotNull BlockPos blockPos) {
+		if (isInBounds(blockPos)) {
+			return true;
+		}
+		getPendingWrites().drop();
+		return false;
+	}
+	
+	private @NotNull PendingDecorationWrites getPendingWrites() {
+		if (pendingWrites == null) {
+			pendingWrites = SystemGenerator.getSystemGeneratorOfWorld(world.toServerWorld().getRegistryKey()).getPendingDecorationWrites();
+		}
+		return pendingWrites;
+	}
+	
+}
@@ -31,10 +31,16 @@ public abstract class SpheroidDecorator {
 	 * not ran after the chunk generation
 	 * The spheroid tracks all blocks that can be decorated and the decorator
 	 * takes them, checks for spawning criteria and
+	 * Blocks are placed using the writer, that holds back blocks too far away from the chunk
 	 */
-	public abstract void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random);
+	public abstract void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random);
 	
-	protected void placeLootChest(@NotNull StructureWorldAccess world, BlockPos blockPos, Identifier lootTable, Random random) {
+	protected void placeLootChest(@NotNull RegionClippingWriter writer, BlockPos blockPos, Identifier lootTable, Random random) {
+		// the loot table gets set right away, so it can not be placed later on
+		if (!writer.canPlaceNow(blockPos)) {
+			return;
+		}
+		StructureWorldAccess world = writer.getWorld();
 		BlockState chestBlockState = Blocks.CHEST.getDefaultState();
 		
 		// if the chest is placed in water: waterlog it!
@@ -61,7 +67,7 @@ public abstract class SpheroidDecorator {
 		}
 		
 		// set the chest and add loot table
-		world.setBlockState(blockPos, chestBlockState.with(ChestBlock.FACING, randomDirection), 3);
+		writer.setBlockState(blockPos, chestBlockState.with(ChestBlock.FACING, randomDirection), 3);
 		BlockEntity chestBlockEntity = world.getBlockEntity(blockPos);
 		if (chestBlockEntity instanceof ChestBlockEntity) {
 			((ChestBlockEntity) chestBlockEntity).setLootTable(lootTable, random.nextLong());
@@ -77,6 +83,15 @@ public abstract class SpheroidDecorator {
 		return null;
 	}
 	
+	private static void addSurfaceBlock(@NotNull StructureWorldAccess world, @NotNull List<BlockPos> list, int x, int y, int z) {
+		if (y != SpheroidSurface.NONE && !world.isOutOfHeightLimit(y)) {
+			list.add(new BlockPos(x, y, z));
+		}
+	}
+	
+	// the following find the surface of the spheroid in the chunk. Spheroids whose surface can be calculated
+	// from their radius do that. Otherwise the surface the spheroid remembered when generating the chunk
+	// is used and if there is none the world is searched
 	protected List<BlockPos> getTopBlocks(StructureWorldAccess world, ChunkPos chunkPos, Spheroid spheroid) {
 		List<BlockPos> list = new ArrayList<>();
 		
@@ -88,8 +103,18 @@ public abstract class SpheroidDecorator {
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int x2 = Math.max(chunkPos.getStartX(), x - rad); x2 <= maxX; x2++) {
 			for (int z2 = Math.max(chunkPos.getStartZ(), z - rad); z2 <= maxZ; z2++) {
+				if (analytic) {
+					addSurfaceBlock(world, list, x2, spheroid.getAnalyticTopY(x2, z2), z2);
+					continue;
+				}
+				if (surface != null) {
+					addSurfaceBlock(world, list, x2, surface.getTopY(x2, z2), z2);
+					continue;
+				}
 				for (int y2 = y + rad; y2 > y; y2--) {
 					mutable.set(x2, y2, z2);
 					if (!world.getBlockState(mutable).isAir()) {
@@ -113,8 +138,18 @@ public abstract class SpheroidDecorator {
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int x2 = Math.max(chunkPos.getStartX(), x - rad); x2 <= maxX; x2++) {
 			for (int z2 = Math.max(chunkPos.getStartZ(), z - rad); z2 <= maxZ; z2++) {
+				if (analytic) {
+					addSurfaceBlock(world, list, x2, spheroid.getAnalyticBottomY(x2, z2), z2);
+					continue;
+				}
+				if (surface != null) {
+					addSurfaceBlock(world, list, x2, surface.getBottomY(x2, z2), z2);
+					continue;
+				}
 				for (int y2 = y - rad; y2 < y; y2++) {
 					mutable.set(x2, y2, z2);
 					if (!world.getBlockState(mutable).isAir()) {
@@ -139,11 +174,25 @@ public abstract class SpheroidDecorator {
 		int minZ = Math.max(chunkPos.getStartZ(), z - rad);
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
+		if (minX > maxX || minZ > maxZ) {
+			// the spheroid does not reach into the chunk
+			return list;
+		}
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
 		
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int i = 0; i < amount; i++) {
 			int x2 = minX + random.nextInt(maxX - minX + 1);
 			int z2 = minZ + random.nextInt(maxZ - minZ + 1);
+			if (analytic) {
+				addSurfaceBlock(world, list, x2, spheroid.getAnalyticTopY(x2, z2), z2);
+				continue;
+			}
+			if (surface != null) {
+				addSurfaceBlock(world, list, x2, surface.getTopY(x2, z2), z2);
+				continue;
+			}
 			for (int y2 = y + rad; y2 > y; y2--) {
 				mutable.set(x2, y2, z2);
 				if (!world.getBlockState(mutable).isAir()) {
@@ -168,11 +217,25 @@ public abstract class SpheroidDecorator {
 		int minZ = Math.max(chunkPos.getStartZ(), z - rad);
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
+		if (minX > maxX || minZ > maxZ) {
+			// the spheroid does not reach into the chunk
+			return list;
+		}
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
 		
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int i = 0; i < amount; i++) {
 			int x2 = minX + random.nextInt(maxX - minX + 1);
 			int z2 = minZ + random.nextInt(maxZ - minZ + 1);
+			if (analytic) {
+				addSurfaceBlock(world, list, x2, spheroid.getAnalyticBottomY(x2, z2), z2);
+				continue;
+			}
+			if (surface != null) {
+				addSurfaceBlock(world, list, x2, surface.getBottomY(x2, z2), z2);
+				continue;
+			}
 			for (int y2 = y - rad; y2 < y; y2++) {
 				mutable.set(x2, y2, z2);
 				if (!world.getBlockState(mutable).isAir()) {
@@ -196,8 +259,18 @@ public abstract class SpheroidDecorator {
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int x2 = Math.max(chunkPos.getStartX(), x - rad); x2 <= maxX; x2++) {
 			for (int z2 = Math.max(chunkPos.getStartZ(), z - rad); z2 <= maxZ; z2++) {
+				if (analytic) {
+					addSurfaceBlock(world, list, x2, spheroid.getAnalyticCaveBottomY(x2, z2), z2);
+					continue;
+				}
+				if (surface != null) {
+					addSurfaceBlock(world, list, x2, surface.getCaveBottomY(x2, z2), z2);
+					continue;
+				}
 				boolean hitShell = false;
 				for (int y2 = y - rad; y2 < y; y2++) {
 					mutable.set(x2, y2, z2);
@@ -230,11 +303,25 @@ public abstract class SpheroidDecorator {
 		int minZ = Math.max(chunkPos.getStartZ(), z - rad);
 		int maxX = Math.min(chunkPos.getEndX(), x + rad);
 		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
+		if (minX > maxX || minZ > maxZ) {
+			// the spheroid does not reach into the chunk
+			return list;
+		}
 		BlockPos.Mutable mutable = new BlockPos.Mutable();
 		
+		boolean analytic = spheroid.hasAnalyticSurface();
+		SpheroidSurface surface = spheroid.getSurface(chunkPos);
 		for (int i = 0; i < amount; i++) {
 			int x2 = minX + random.nextInt(maxX - minX + 1);
 			int z2 = minZ + random.nextInt(maxZ - minZ + 1);
+			if (analytic) {
+				addSurfaceBlock(world, list, x2, spheroid.getAnalyticCaveBottomY(x2, z2), z2);
+				continue;
+			}
+			if (surface != null) {
+				addSurfaceBlock(world, list, x2, surface.getCaveBottomY(x2, z2), z2);
+				continue;
+			}
 			boolean hitShell = false;
 			for (int y2 = y - rad; y2 < y; y2++) {
 				mutable.set(x2, y2, z2);
@@ -0,0 +1,370 @@
+package de.dafuqs.starryskies.spheroids;
+
+import de.dafuqs.starryskies.Support;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.random.Random;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the blocks of a spheroid as bands of rounded distances to its center, from the inside out.
+ * A band contains all blocks with a rounded distance of at most its max distance that are not part of an earlier band,
+ * same as a chain of "if (d <= maxDistance)" checks. Blocks outside all bands are left untouched.
+ * <p>
+ * Since each band is a single y range in each column (or two, if there is an inner band)
+ * the bands are filled column by column. Those ranges only depend on the distances, so they are taken
+ * from a cached SpheroidStamp. Only bands that roll a random block state for each block
+ * are filled block by block, in the same x, y, z order the spheroids have always been generated in.
+ * <p>
+ * On top of the bands there can be a bottom and top block at the lowest and highest block of each column
+ * that is part of the outermost block layer, and a floor right below the lowest block of a band
+ * <p>
+ * Chunk sections that lie completely inside a band with a single block state get replaced as a whole.
+ * Sections outside the spheroid are never touched at all
+ */
+public class SpheroidShape {
+	
+	/**
+	 * A block state depending on the position of the block. Null leaves the block untouched
+	 */
+	@FunctionalInterface
+	public interface PositionalBlockState {
+		@Nullable BlockState get(int x, int y, int z);
+	}
+	
+	/**
+	 * A block state that is rolled for each block
+	 */
+	@FunctionalInterface
+	public interface RandomBlockState {
+		@NotNull BlockState get(Random random);
+	}
+	
+	private static class Band {
+		
+		private final float maxDistance;
+		private final @Nullable BlockState blockState;
+		private final @Nullable PositionalBlockState positionalBlockState;
+		private final @Nullable RandomBlockState randomBlockState;
+		private @Nullable BlockState floorBlockState;
+		
+		private Band(float maxDistance, @Nullable BlockState blockState, @Nullable PositionalBlockState positionalBlockState, @Nullable RandomBlockState randomBlockState) {
+			this.maxDistance = maxDistance;
+			this.blockState = blockState;
+			this.positionalBlockState = positionalBlockState;
+			this.randomBlockState = randomBlockState;
+		}
+		
+	}
+	
+	private final List<Band> bands = new ArrayList<>();
+	private @Nullable PositionalBlockState bottomBlockState;
+	private @Nullable PositionalBlockState topBlockState;
+	private boolean hasRandomBands;
+	
+	/**
+	 * Adds a band filled with a single block state
+	 *
+	 * @param blockState the block state. Null leaves the blocks of the band untouched
+	 */
+	public SpheroidShape band(float maxDistance, @Nullable BlockState blockState) {
+		bands.add(new Band(maxDistance, blockState, null, null));
+		return this;
+	}
+	
+	/**
+	 * Adds a band whose block states depend on the position of each block. Runs of the same state are filled at once
+	 */
+	public SpheroidShape positionalBand(float maxDistance, @NotNull PositionalBlockState blockState) {
+		bands.add(new Band(maxDistance, null, blockState, null));
+		return this;
+	}
+	
+	/**
+	 * Adds a band that rolls the block state of each block using the random passed to generate()
+	 */
+	public SpheroidShape randomBand(float maxDistance, @NotNull RandomBlockState blockState) {
+		bands.add(new Band(maxDistance, null, null, blockState));
+		hasRandomBands = true;
+		return this;
+	}
+	
+	/**
+	 * Places a floor below the last added band: where the lowest block of the band in a column has a
+	 * rounded distance of exactly maxDistance and the block below it is outside the band, the block below gets
+	 * replaced with the floor. The block above the floor is left untouched.
+	 */
+	public SpheroidShape floor(@Nullable BlockState floorBlockState) {
+		bands.get(bands.size() - 1).floorBlockState = floorBlockState;
+		return this;
+	}
+	
+	/**
+	 * The block at the bottom of each column of the outermost block layer
+	 */
+	public SpheroidShape bottom(@Nullable BlockState bottomBlockState) {
+		this.bottomBlockState = bottomBlockState == null ? null : (x, y, z) -> bottomBlockState;
+		return this;
+	}
+	
+	public SpheroidShape bottom(@Nullable PositionalBlockState bottomBlockState) {
+		this.bottomBlockState = bottomBlockState;
+		return this;
+	}
+	
+	/**
+	 * The block at the top of each column of the outermost block layer
+	 */
+	public SpheroidShape top(@Nullable BlockState topBlockState) {
+		this.topBlockState = topBlockState == null ? null : (x, y, z) -> topBlockState;
+		return this;
+	}
+	
+	public SpheroidShape top(@Nullable PositionalBlockState topBlockState) {
+		this.topBlockState = topBlockState;
+		return this;
+	}
+	
+	/**
+	 * Writes the part of the spheroid that is inside the chunk
+	 *
+	 * @param writer   the writer of the chunk
+	 * @param chunkPos the chunk
+	 * @param center   the center of the spheroid
+	 * @param radius   the radius of the spheroid. No band reaches further out than this
+	 * @param random   the random used for random bands. May be null if there are none
+	 */
+	public void generate(@NotNull ChunkSectionWriter writer, @NotNull ChunkPos chunkPos, @NotNull BlockPos center, float radius, @Nullable Random random) {
+		int x = center.getX();
+		int y = center.getY();
+		int z = center.getZ();
+		
+		int ceiledRadius = (int) Math.ceil(radius);
+		int minX = Math.max(chunkPos.getStartX(), x - ceiledRadius);
+		int maxX = Math.min(chunkPos.getEndX(), x + ceiledRadius);
+		int minZ = Math.max(chunkPos.getStartZ(), z - ceiledRadius);
+		int maxZ = Math.min(chunkPos.getEndZ(), z + ceiledRadius);
+		if (minX > maxX || minZ > maxZ) {
+			return;
+		}
+		
+		fillSections(writer, chunkPos, x, y, z, ceiledRadius, radius);
+		
+		// the half height of each band in each column, from the inside out. -1 for bands not reaching into that column
+		int bandCount = bands.size();
+		float[] bandDistances = new float[bandCount];
+		for (int i = 0; i < bandCount; i++) {
+			bandDistances[i] = bands.get(i).maxDistance;
+		}
+		SpheroidStamp stamp = SpheroidStamp.get(radius, bandDistances);
+		
+		for (int x2 = minX; x2 <= maxX; x2++) {
+			for (int z2 = minZ; z2 <= maxZ; z2++) {
+				int innerHalfHeight = -1;
+				for (int i = 0; i < bandCount; i++) {
+					Band band = bands.get(i);
+					int bandHalfHeight = stamp.getHalfHeight(x2 - x, z2 - z, i);
+					if (band.randomBlockState == null && bandHalfHeight > innerHalfHeight) {
+						fillBand(writer, band, x2, y, z2, innerHalfHeight, bandHalfHeight, isFloored(band, x2 - x, z2 - z, bandHalfHeight));
+					}
+					innerHalfHeight = bandHalfHeight;
+				}
+			}
+		}
+		
+		if (hasRandomBands) {
+			if (random == null) {
+				throw new IllegalArgumentException("Spheroid shapes with random bands need a random to be generated");
+			}
+			for (int x2 = minX; x2 <= maxX; x2++) {
+				for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
+					int dy = Math.abs(y2 - y);
+					for (int z2 = minZ; z2 <= maxZ; z2++) {
+						Band band = getBand(stamp, x2 - x, z2 - z, dy);
+						if (band != null && band.randomBlockState != null) {
+							writer.setBlockState(x2, y2, z2, band.randomBlockState.get(random));
+						}
+					}
+				}
+			}
+		}
+		
+		if (bottomBlockState != null || topBlockState != null) {
+			for (int x2 = minX; x2 <= maxX; x2++) {
+				for (int z2 = minZ; z2 <= maxZ; z2++) {
+					int columnDistance = (x2 - x) * (x2 - x) + (z2 - z) * (z2 - z);
+					int halfHeight = stamp.getHalfHeight(x2 - x, z2 - z, bandCount);
+					// the block below the lowest and above the highest block of a column are outside the spheroid
+					// so those are bottom and top blocks, as long as they are part of the outermost layer
+					if (halfHeight >= 0 && Support.getRoundedDistance(columnDistance + halfHeight * halfHeight) > radius - 1) {
+						if (bottomBlockState != null) {
+							setBlockState(writer, bottomBlockState, x2, y - halfHeight, z2);
+						} else if (halfHeight == 0 && topBlockState != null) {
+							setBlockState(writer, topBlockState, x2, y, z2);
+						}
+						if (halfHeight > 0 && topBlockState != null) {
+							setBlockState(writer, topBlockState, x2, y + halfHeight, z2);
+						}
+					}
+				}
+			}
+		}
+		
+		for (int i = 0; i < bandCount; i++) {
+			Band band = bands.get(i);
+			if (band.floorBlockState == null) {
+				continue;
+			}
+			for (int x2 = minX; x2 <= maxX; x2++) {
+				for (int z2 = minZ; z2 <= maxZ; z2++) {
+					int bandHalfHeight = stamp.getHalfHeight(x2 - x, z2 - z, i);
+					int innerHalfHeight = i == 0 ? -1 : stamp.getHalfHeight(x2 - x, z2 - z, i - 1);
+					if (bandHalfHeight > innerHalfHeight && isFloored(band, x2 - x, z2 - z, bandHalfHeight)) {
+						writer.setBlockState(x2, y - bandHalfHeight - 1, z2, band.floorBlockState);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Replaces each section of the chunk that lies completely inside a single band with a single block state at once.
+	 * The column pass then skips those sections, since they hold that state already
+	 */
+	private void fillSections(@NotNull ChunkSectionWriter writer, @NotNull ChunkPos chunkPos, int x, int y, int z, int ceiledRadius, float radius) {
+		// a section is inside band i if all its blocks have a squared distance of at most limits[i]
+		// and more than limits[i - 1]. Since round(sqrt(s)) <= n is the same as s <= n * (n + 1)
+		int bandCount = bands.size();
+		long radiusLimit = getSquaredDistanceLimit(radius);
+		long[] limits = new long[bandCount];
+		long innerLimit = -1;
+		for (int i = 0; i < bandCount; i++) {
+			innerLimit = Math.min(Math.max(getSquaredDistanceLimit(bands.get(i).maxDistance), innerLimit), radiusLimit);
+			limits[i] = innerLimit;
+		}
+		
+		int startDx = chunkPos.getStartX() - x;
+		int startDz = chunkPos.getStartZ() - z;
+		long minColumnDistance = getMinSquare(startDx, startDx + 15) + getMinSquare(startDz, startDz + 15);
+		long maxColumnDistance = getMaxSquare(startDx, startDx + 15) + getMaxSquare(startDz, startDz + 15);
+		if (maxColumnDistance > radiusLimit) {
+			// the spheroid does not cover the chunk completely
+			return;
+		}
+		
+		int minSectionY = Math.max(y - ceiledRadius, writer.getBottomY()) >> 4;
+		int maxSectionY = Math.min(y + ceiledRadius, writer.getTopY() - 1) >> 4;
+		for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+			int minDy = (sectionY << 4) - y;
+			int maxDy = minDy + 15;
+			// bottom and top blocks sit at the ends of the columns
+			if ((bottomBlockState != null || topBlockState != null) && maxColumnDistance + getMaxSquare(minDy - 1, maxDy + 1) > radiusLimit) {
+				continue;
+			}
+			
+			long minDistance = minColumnDistance + getMinSquare(minDy, maxDy);
+			long maxDistance = maxColumnDistance + getMaxSquare(minDy, maxDy);
+			for (int i = 0; i < bandCount; i++) {
+				if (maxDistance <= limits[i]) {
+					Band band = bands.get(i);
+					if (minDistance > (i == 0 ? -1 : limits[i - 1]) && band.blockState != null && band.positionalBlockState == null && band.randomBlockState == null && band.floorBlockState == null) {
+						writer.fillSection(sectionY, band.blockState);
+					}
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The highest squared distance that still has a rounded distance of at most maxDistance. -1 if there is none
+	 */
+	private static long getSquaredDistanceLimit(float maxDistance) {
+		long n = (long) Math.floor(maxDistance);
+		return n < 0 ? -1 : n * (n + 1);
+	}
+	
+	private static long getMinSquare(int from, int to) {
+		if (from <= 0 && to >= 0) {
+			return 0;
+		}
+		return Math.min((long) from * from, (long) to * to);
+	}
+	
+	private static long getMaxSquare(int from, int to) {
+		return Math.max((long) from * from, (long) to * to);
+	}
+	
+	/**
+	 * If the lowest block of a band in a column sits right above a floor
+	 */
+	private boolean isFloored(@NotNull Band band, int dx, int dz, int bandHalfHeight) {
+		if (band.floorBlockState == null || bandHalfHeight < 0) {
+			return false;
+		}
+		int d = Support.getRoundedDistance(dx, -bandHalfHeight, dz);
+		return d == band.maxDistance && Support.getRoundedDistance(dx, -bandHalfHeight - 1, dz) > band.maxDistance;
+	}
+	
+	private @Nullable Band getBand(@NotNull SpheroidStamp stamp, int dx, int dz, int dy) {
+		for (int i = 0; i < bands.size(); i++) {
+			if (dy <= stamp.getHalfHeight(dx, dz, i)) {
+				return bands.get(i);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Fills the blocks of a column with innerHalfHeight < |dy| <= halfHeight
+	 */
+	private void fillBand(@NotNull ChunkSectionWriter writer, @NotNull Band band, int x, int y, int z, int innerHalfHeight, int halfHeight, boolean floored) {
+		// a floored band leaves its lowest block untouched
+		int minY = floored ? y - halfHeight + 1 : y - halfHeight;
+		if (innerHalfHeight < 0) {
+			fillRange(writer, band, x, z, minY, y + halfHeight);
+		} else {
+			fillRange(writer, band, x, z, minY, y - innerHalfHeight - 1);
+			fillRange(writer, band, x, z, y + innerHalfHeight + 1, y + halfHeight);
+		}
+	}
+	
+	private void fillRange(@NotNull ChunkSectionWriter writer, @NotNull Band band, int x, int z, int minY, int maxY) {
+		if (band.positionalBlockState == null) {
+			if (band.blockState != null) {
+				writer.fillColumn(x, z, minY, maxY, band.blockState);
+			}
+			return;
+		}
+		
+		// write runs of the same block state at once
+		int runStartY = minY;
+		BlockState runBlockState = null;
+		for (int y = minY; y <= maxY; y++) {
+			BlockState blockState = band.positionalBlockState.get(x, y, z);
+			if (blockState != runBlockState) {
+				if (runBlockState != null) {
+					writer.fillColumn(x, z, runStartY, y - 1, runBlockState);
+				}
+				runStartY = y;
+				runBlockState = blockState;
+			}
+		}
+		if (runBlockState != null) {
+			writer.fillColumn(x, z, runStartY, maxY, runBlockState);
+		}
+	}
+	
+	private void setBlockState(@NotNull ChunkSectionWriter writer, @NotNull PositionalBlockState positionalBlockState, int x, int y, int z) {
+		BlockState blockState = positionalBlockState.get(x, y, z);
+		if (blockState != null) {
+			writer.setBlockState(x, y, z, blockState);
+		}
+	}
+	
+}
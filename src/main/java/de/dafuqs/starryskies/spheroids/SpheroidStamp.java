@@ -0,0 +1,117 @@
+package de.dafuqs.starryskies.spheroids;
+
+import de.dafuqs.starryskies.StarrySkies;
+import de.dafuqs.starryskies.Support;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The half heights of all columns of a spheroid shape, relative to its center.
+ * Those only depend on the radius and the max distances of the bands, not on the position of the spheroid
+ * or its blocks, so each combination only has to be calculated once and can then be copied into every chunk.
+ * Stamps are cached, dropping the least recently used one when the cache is full
+ */
+final class SpheroidStamp {
+	
+	// access ordered: the eldest entry is always the least recently used one
+	private static final LinkedHashMap<Key, SpheroidStamp> CACHE = new LinkedHashMap<>(16, 0.75F, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, SpheroidStamp> eldest) {
+			return size() > Math.max(1, StarrySkies.CONFIG.spheroidStampCacheSize);
+		}
+	};
+	
+	private final int reach;
+	private final int width;
+	private final int bandCount;
+	// for each column the half heights of all bands from the inside out, followed by the one of the whole spheroid
+	private final short[] halfHeights;
+	
+	private SpheroidStamp(float radius, float @NotNull [] bandDistances) {
+		this.reach = Math.max((int) Math.floor(radius), -1);
+		this.width = 2 * reach + 1;
+		this.bandCount = bandDistances.length;
+		this.halfHeights = new short[width * width * (bandCount + 1)];
+		
+		for (int dx = -reach; dx <= reach; dx++) {
+			for (int dz = -reach; dz <= reach; dz++) {
+				int columnDistance = dx * dx + dz * dz;
+				int index = ((dx + reach) * width + (dz + reach)) * (bandCount + 1);
+				int halfHeight = Support.getColumnHalfHeight(columnDistance, radius);
+				// each band also contains everything its inner band does, but never reaches further than the spheroid
+				int innerHalfHeight = -1;
+				for (int i = 0; i < bandCount; i++) {
+					innerHalfHeight = Math.min(Math.max(Support.getColumnHalfHeight(columnDistance, bandDistances[i]), innerHalfHeight), halfHeight);
+					halfHeights[index + i] = (short) innerHalfHeight;
+				}
+				halfHeights[index + bandCount] = (short) halfHeight;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the cached stamp for that radius and bands. Calculates it if it is not cached yet
+	 *
+	 * @param radius        the radius of the spheroid
+	 * @param bandDistances the max distances of its bands, from the inside out
+	 */
+	static @NotNull SpheroidStamp get(float radius, float @NotNull [] bandDistances) {
+		// only the floored distances make a difference for the half heights
+		int[] floored = new int[bandDistances.length + 1];
+		floored[0] = (int) Math.floor(radius);
+		for (int i = 0; i < bandDistances.length; i++) {
+			floored[i + 1] = (int) Math.floor(bandDistances[i]);
+		}
+		Key key = new Key(floored);
+		
+		synchronized (CACHE) {
+			SpheroidStamp stamp = CACHE.get(key);
+			if (stamp != null) {
+				return stamp;
+			}
+		}
+		// calculated outside the lock. Two threads calculating the same stamp at once end up with identical ones
+		SpheroidStamp stamp = new SpheroidStamp(radius, bandDistances);
+		synchronized (CACHE) {
+			CACHE.put(key, stamp);
+		}
+		return stamp;
+	}
+	
+	/**
+	 * @param band the index of the band, or the band count for the whole spheroid
+	 * @return the max |dy| of the blocks of the band in the column at dx, dz to the center or -1, if there are none
+	 */
+	int getHalfHeight(int dx, int dz, int band) {
+		if (dx < -reach || dx > reach || dz < -reach || dz > reach) {
+			return -1;
+		}
+		return halfHeights[((dx + reach) * width + dz + reach) * (bandCount + 1) + band];
+	}
+	
+	private static final class Key {
+		
+		private final int[] distances;
+		private final int hashCode;
+		
+		private Key(int @NotNull [] distances) {
+			this.distances = distances;
+			this.hashCode = Arrays.hashCode(distances);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key key && Arrays.equals(distances, key.distances);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+	}
+	
+}
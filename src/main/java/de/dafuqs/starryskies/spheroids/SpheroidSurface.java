@@ -0,0 +1,105 @@
+package de.dafuqs.starryskies.spheroids;
+
+import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The surface of a spheroid in a single chunk, found once right after generating it:
+ * for each column the y of its top block, its bottom block and the floor of its cave.
+ * Decorators use those instead of each searching the world for them again.
+ * <p>
+ * The blocks are searched for the same way the search helpers of SpheroidDecorator do
+ */
+public class SpheroidSurface {
+	
+	public static final int NONE = Short.MIN_VALUE;
+	
+	private final int startX;
+	private final int startZ;
+	private final short[] topY = new short[16 * 16];
+	private final short[] bottomY = new short[16 * 16];
+	private final short[] caveBottomY = new short[16 * 16];
+	
+	private SpheroidSurface(@NotNull ChunkPos chunkPos) {
+		this.startX = chunkPos.getStartX();
+		this.startZ = chunkPos.getStartZ();
+		Arrays.fill(topY, (short) NONE);
+		Arrays.fill(bottomY, (short) NONE);
+		Arrays.fill(caveBottomY, (short) NONE);
+	}
+	
+	/**
+	 * Searches the surface of the spheroid in the chunk the writer writes into
+	 */
+	public static @NotNull SpheroidSurface scan(@NotNull ChunkSectionWriter writer, @NotNull ChunkPos chunkPos, @NotNull Spheroid spheroid) {
+		SpheroidSurface surface = new SpheroidSurface(chunkPos);
+		
+		int x = spheroid.getPosition().getX();
+		int y = spheroid.getPosition().getY();
+		int z = spheroid.getPosition().getZ();
+		
+		int rad = spheroid.getRadius();
+		int maxX = Math.min(chunkPos.getEndX(), x + rad);
+		int maxZ = Math.min(chunkPos.getEndZ(), z + rad);
+		for (int x2 = Math.max(chunkPos.getStartX(), x - rad); x2 <= maxX; x2++) {
+			for (int z2 = Math.max(chunkPos.getStartZ(), z - rad); z2 <= maxZ; z2++) {
+				int column = (x2 - surface.startX) * 16 + (z2 - surface.startZ);
+				
+				for (int y2 = y + rad; y2 > y; y2--) {
+					if (!writer.getBlockState(x2, y2, z2).isAir()) {
+						surface.topY[column] = (short) y2;
+						break;
+					}
+				}
+				
+				for (int y2 = y - rad; y2 < y; y2++) {
+					if (!writer.getBlockState(x2, y2, z2).isAir()) {
+						surface.bottomY[column] = (short) y2;
+						break;
+					}
+				}
+				
+				// the first air or fluid block above the shell. The cave floor is the block below it
+				boolean hitShell = false;
+				for (int y2 = y - rad; y2 < y; y2++) {
+					BlockState state = writer.getBlockState(x2, y2, z2);
+					boolean airOrFluid = state.isAir() || state.getFluidState().getFluid() != Fluids.EMPTY;
+					if (!airOrFluid) {
+						hitShell = true;
+					} else if (hitShell) {
+						surface.caveBottomY[column] = (short) (y2 - 1);
+						break;
+					}
+				}
+			}
+		}
+		return surface;
+	}
+	
+	/**
+	 * @return the y of the top block of the spheroid in that column or NONE, if there is none
+	 */
+	public int getTopY(int x, int z) {
+		return topY[(x - startX) * 16 + (z - startZ)];
+	}
+	
+	/**
+	 * @return the y of the bottom block of the spheroid in that column or NONE, if there is none
+	 */
+	public int getBottomY(int x, int z) {
+		return bottomY[(x - startX) * 16 + (z - startZ)];
+	}
+	
+	/**
+	 * @return the y of the floor of the cave of the spheroid in that column or NONE, if there is none
+	 */
+	public int getCaveBottomY(int x, int z) {
+		return caveBottomY[(x - startX) * 16 + (z - startZ)];
+	}
+	
+}
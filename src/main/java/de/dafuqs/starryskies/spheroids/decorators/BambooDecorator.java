@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BambooBlock;
@@ -31,25 +32,25 @@ public class BambooDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getTopBlocks(world, origin, spheroid)) {
 			if (random.nextFloat() < chance) {
 				if (random.nextFloat() < saplingChance) {
 					if (bambooSaplingBlockState.canPlaceAt(world, bp.up())) {
-						world.setBlockState(bp.up(), bambooSaplingBlockState, 3);
+						writer.setBlockState(bp.up(), bambooSaplingBlockState, 3);
 					}
 				} else {
 					int height = random.nextInt(8);
 					for (int i = 1; i < height; i++) {
 						if (bambooBlockState.canPlaceAt(world, bp.up(i))) {
 							if (i == 3 && height < 5) {
-								world.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.NONE), 3);
+								writer.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.NONE), 3);
 							} else if (i > 4) {
-								world.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.LARGE), 3);
+								writer.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.LARGE), 3);
 							} else if (i > 2) {
-								world.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.SMALL), 3);
+								writer.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.SMALL), 3);
 							} else {
-								world.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.NONE), 3);
+								writer.setBlockState(bp.up(i), bambooBlockState.with(BambooBlock.LEAVES, BambooLeaves.NONE), 3);
 							}
 						}
 					}
@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -26,10 +27,10 @@ public class CaveBottomDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getCaveBottomBlocks(world, origin, spheroid)) {
 			if (random.nextFloat() < chance && block.canPlaceAt(world, bp.up())) {
-				world.setBlockState(bp.up(), block, 3);
+				writer.setBlockState(bp.up(), block, 3);
 			}
 		}
 	}
@@ -3,6 +3,8 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -33,7 +35,7 @@ public class CenterPondDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
@@ -74,6 +76,8 @@ public class CenterPondDecorator extends SpheroidDecorator {
 			boolean hasLootChest = random.nextFloat() < this.lootTableChance;
 			BlockPos lootChestPosition = null;
 			
+			DecorationWriteBuffer buffer = new DecorationWriteBuffer(writer);
+			
 			int pond15 = (int) Math.round(pondRadius * 1.5);
 			for (int x = -pond15; x <= pond15; x++) {
 				for (int y = -pondRadius; y < pondRadius; y++) {
@@ -98,16 +102,17 @@ public class CenterPondDecorator extends SpheroidDecorator {
 						
 						if (blockState != null) {
 							if (!world.getBlockState(currentBlockPos).isAir()) {
-								world.setBlockState(currentBlockPos, blockState, 3);
+								buffer.setBlockState(currentBlockPos, blockState);
 							}
 						}
 						
 					}
 				}
 			}
+			buffer.flush();
 			
 			if (lootChestPosition != null) {
-				placeLootChest(world, lootChestPosition, lootTable, random);
+				placeLootChest(writer, lootChestPosition, lootTable, random);
 			}
 		}
 	}
@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.ChorusFlowerBlock;
@@ -20,7 +21,7 @@ public class ChorusFruitDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getTopBlocks(world, origin, spheroid)) {
 			if (random.nextFloat() < chorusChance) {
 				ChorusFlowerBlock.generate(world, bp.up(), random, 8);
@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -25,7 +26,7 @@ public class CocoaDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
@@ -50,10 +51,10 @@ public class CocoaDecorator extends SpheroidDecorator {
 								direction = Direction.NORTH;
 							}
 						}
-						world.setBlockState(bp, COCOA.with(HorizontalFacingBlock.FACING, direction), 3);
+						writer.setBlockState(bp, COCOA.with(HorizontalFacingBlock.FACING, direction), 3);
 					} else {
 						if (Math.abs(y) != 2 || (Math.abs(x) != 2 && Math.abs(z) != 2)) {
-							world.setBlockState(bp, AIR, 3);
+							writer.setBlockState(bp, AIR, 3);
 						}
 					}
 				}
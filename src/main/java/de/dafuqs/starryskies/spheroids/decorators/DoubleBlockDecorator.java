@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -28,12 +29,12 @@ public class DoubleBlockDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getTopBlocks(world, origin, spheroid)) {
 			if (!world.getBlockState(bp).isAir() && world.getBlockState(bp.up()).isAir() && world.getBlockState(bp.up(2)).isAir()) {
 				if (random.nextFloat() < chance) {
-					world.setBlockState(bp.up(), block.with(TallFlowerBlock.HALF, DoubleBlockHalf.LOWER), 3);
-					world.setBlockState(bp.up(2), block.with(TallFlowerBlock.HALF, DoubleBlockHalf.UPPER), 3);
+					writer.setBlockState(bp.up(), block.with(TallFlowerBlock.HALF, DoubleBlockHalf.LOWER), 3);
+					writer.setBlockState(bp.up(2), block.with(TallFlowerBlock.HALF, DoubleBlockHalf.UPPER), 3);
 				}
 			}
 		}
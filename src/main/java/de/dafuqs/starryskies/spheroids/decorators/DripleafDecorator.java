@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.Block;
@@ -34,7 +35,7 @@ public class DripleafDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getCaveBottomBlocks(world, origin, spheroid, random, tries)) {
 			boolean canGenerate;
 			
@@ -51,7 +52,7 @@ public class DripleafDecorator extends SpheroidDecorator {
 			
 			if (canGenerate) {
 				// clay
-				world.setBlockState(bp, CLAY_BLOCK_STATE, 3);
+				writer.setBlockState(bp, CLAY_BLOCK_STATE, 3);
 				
 				// the dripleaf
 				Direction randomDirection = Direction.Type.HORIZONTAL.random(random);
@@ -59,9 +60,9 @@ public class DripleafDecorator extends SpheroidDecorator {
 				for (int i = 0; i <= dripLeafHeight; i++) {
 					if (DRIPLEAF_BLOCK.canPlaceAt(DRIPLEAF_BLOCK_STATE.with(HorizontalFacingBlock.FACING, randomDirection), world, bp.up(i))) {
 						if (i == dripLeafHeight) {
-							world.setBlockState(bp.up(i), DRIPLEAF_BLOCK_STATE.with(HorizontalFacingBlock.FACING, randomDirection), 3);
+							writer.setBlockState(bp.up(i), DRIPLEAF_BLOCK_STATE.with(HorizontalFacingBlock.FACING, randomDirection), 3);
 						} else {
-							world.setBlockState(bp.up(i), DRIPLEAF_STEM_BLOCK_STATE.with(HorizontalFacingBlock.FACING, randomDirection), 3);
+							writer.setBlockState(bp.up(i), DRIPLEAF_STEM_BLOCK_STATE.with(HorizontalFacingBlock.FACING, randomDirection), 3);
 						}
 						
 					}
@@ -73,7 +74,7 @@ public class DripleafDecorator extends SpheroidDecorator {
 					Direction currentDirection = direction.next();
 					BlockPos offsetPos = bp.offset(currentDirection);
 					if (world.getBlockState(offsetPos.up()).isAir()) {
-						world.setBlockState(offsetPos, WATER_BLOCK_STATE, 3);
+						writer.setBlockState(offsetPos, WATER_BLOCK_STATE, 3);
 					}
 				}
 			}
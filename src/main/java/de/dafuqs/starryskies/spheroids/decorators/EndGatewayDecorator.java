@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.StarrySkyDimensionTravelHandler;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.Blocks;
@@ -20,7 +21,7 @@ public class EndGatewayDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
@@ -36,23 +37,26 @@ public class EndGatewayDecorator extends SpheroidDecorator {
 			if (bl && bl2 && bl3) {
 				BlockPos blockPos3 = blockPos2.toImmutable();
 				
-				world.setBlockState(blockPos3, Blocks.END_GATEWAY.getDefaultState(), 3);
-				
-				// set exit position
-				BlockEntity blockEntity = world.getBlockEntity(blockPos3);
-				if (blockEntity instanceof EndGatewayBlockEntity endGatewayBlockEntity) {
-					endGatewayBlockEntity.setExitPortalPos(exitBlockPos, false);
-					blockEntity.markDirty();
+				// its exit gets set right away, so it can not be placed later on
+				if (writer.canPlaceNow(blockPos3)) {
+					writer.setBlockState(blockPos3, Blocks.END_GATEWAY.getDefaultState(), 3);
+					
+					// set exit position
+					BlockEntity blockEntity = world.getBlockEntity(blockPos3);
+					if (blockEntity instanceof EndGatewayBlockEntity endGatewayBlockEntity) {
+						endGatewayBlockEntity.setExitPortalPos(exitBlockPos, false);
+						blockEntity.markDirty();
+					}
 				}
 				
 			} else if (bl2) {
-				world.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
 			} else if (bl4 && bl && bl3) {
-				world.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
 			} else if ((bl || bl3) && !bl4) {
-				world.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
 			} else {
-				world.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
 			}
 		}
 	}
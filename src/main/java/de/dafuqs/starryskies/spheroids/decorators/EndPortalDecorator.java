@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.Blocks;
@@ -21,14 +22,14 @@ public class EndPortalDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
-		this.generate(world, new BlockPos(0, 64, 0), true);
+		this.generate(writer, new BlockPos(0, 64, 0), true);
 	}
 	
-	public boolean generate(StructureWorldAccess structureWorldAccess, BlockPos blockPos, boolean open) {
+	public boolean generate(RegionClippingWriter writer, BlockPos blockPos, boolean open) {
 		Iterator<BlockPos> var6 = BlockPos.iterate(new BlockPos(blockPos.getX() - 4, blockPos.getY() - 1, blockPos.getZ() - 4), new BlockPos(blockPos.getX() + 4, blockPos.getY() + 32, blockPos.getZ() + 4)).iterator();
 		
 		while (true) {
@@ -37,12 +38,12 @@ public class EndPortalDecorator extends SpheroidDecorator {
 			do {
 				if (!var6.hasNext()) {
 					for (int i = 0; i < 4; ++i) {
-						structureWorldAccess.setBlockState(blockPos.up(i), Blocks.BEDROCK.getDefaultState(), 3);
+						writer.setBlockState(blockPos.up(i), Blocks.BEDROCK.getDefaultState(), 3);
 					}
 					
 					BlockPos blockPos3 = blockPos.up(2);
 					for (Direction direction : Direction.Type.HORIZONTAL) {
-						structureWorldAccess.setBlockState(blockPos3.offset(direction), Blocks.WALL_TORCH.getDefaultState().with(WallTorchBlock.FACING, direction), 3);
+						writer.setBlockState(blockPos3.offset(direction), Blocks.WALL_TORCH.getDefaultState().with(WallTorchBlock.FACING, direction), 3);
 					}
 					
 					return true;
@@ -54,18 +55,18 @@ public class EndPortalDecorator extends SpheroidDecorator {
 			
 			if (blockPos2.getY() < blockPos.getY()) {
 				if (bl) {
-					structureWorldAccess.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
+					writer.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
 				} else if (blockPos2.getY() < blockPos.getY()) {
-					structureWorldAccess.setBlockState(blockPos2, Blocks.END_STONE.getDefaultState(), 3);
+					writer.setBlockState(blockPos2, Blocks.END_STONE.getDefaultState(), 3);
 				}
 			} else if (blockPos2.getY() > blockPos.getY()) {
-				structureWorldAccess.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.AIR.getDefaultState(), 3);
 			} else if (!bl) {
-				structureWorldAccess.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
+				writer.setBlockState(blockPos2, Blocks.BEDROCK.getDefaultState(), 3);
 			} else if (open) {
-				structureWorldAccess.setBlockState(new BlockPos(blockPos2), Blocks.END_PORTAL.getDefaultState(), 3);
+				writer.setBlockState(new BlockPos(blockPos2), Blocks.END_PORTAL.getDefaultState(), 3);
 			} else {
-				structureWorldAccess.setBlockState(new BlockPos(blockPos2), Blocks.AIR.getDefaultState(), 3);
+				writer.setBlockState(new BlockPos(blockPos2), Blocks.AIR.getDefaultState(), 3);
 			}
 		}
 	}
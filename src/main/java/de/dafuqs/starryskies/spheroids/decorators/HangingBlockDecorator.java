@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -26,14 +27,14 @@ public class HangingBlockDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		int spheroidY = spheroid.getPosition().getY();
 		for (BlockPos bp : getBottomBlocks(world, origin, spheroid)) {
 			BlockPos flippedBlockPos = bp.down((bp.getY() - spheroidY) * 2);
 			
 			if (world.getBlockState(flippedBlockPos.down()).isAir()) {
 				if (random.nextFloat() < chance) {
-					world.setBlockState(flippedBlockPos.down(), block, 3);
+					writer.setBlockState(flippedBlockPos.down(), block, 3);
 				}
 			}
 		}
@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -25,11 +26,11 @@ public class HangingCaveBlockDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getBottomBlocks(world, origin, spheroid)) {
 			if (!world.getBlockState(bp).isAir() && random.nextFloat() < chance) {
 				if (world.getBlockState(bp.down()).isAir()) {
-					world.setBlockState(bp.down(), block, 3);
+					writer.setBlockState(bp.down(), block, 3);
 				}
 				break;
 			}
@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
@@ -18,7 +19,7 @@ public class HugeHangingPlantDecorator extends HugePlantDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getBottomBlocks(world, origin, spheroid)) {
 			
 			if (random.nextFloat() < chance) {
@@ -33,10 +34,10 @@ public class HugeHangingPlantDecorator extends HugePlantDecorator {
 							placementBlockState = lastBlock;
 						}
 						
-						world.setBlockState(bp.down(i), placementBlockState, 3);
+						writer.setBlockState(bp.down(i), placementBlockState, 3);
 					} else {
 						if (i > 1 && lastBlock != null) {
-							world.setBlockState(bp.down(i - 1), lastBlock, 3);
+							writer.setBlockState(bp.down(i - 1), lastBlock, 3);
 						}
 						break;
 					}
@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -46,7 +47,7 @@ public class HugePlantDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getTopBlocks(world, origin, spheroid)) {
 			BlockState posState = world.getBlockState(bp);
 			if (!posState.isFullCube(world, bp)) {
@@ -65,7 +66,7 @@ public class HugePlantDecorator extends SpheroidDecorator {
 							placementBlockState = lastBlock;
 						}
 						
-						world.setBlockState(bp.up(), placementBlockState, 3);
+						writer.setBlockState(bp.up(), placementBlockState, 3);
 					} else {
 						break;
 					}
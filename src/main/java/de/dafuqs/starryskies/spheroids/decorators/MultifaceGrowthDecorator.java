@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.Block;
@@ -40,7 +41,7 @@ public class MultifaceGrowthDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		int spheroidY = spheroid.getPosition().getY();
 		
 		for (BlockPos bp : getCaveBottomBlocks(world, origin, spheroid)) {
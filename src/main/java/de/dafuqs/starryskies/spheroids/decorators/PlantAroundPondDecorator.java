@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -29,7 +30,7 @@ public class PlantAroundPondDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos pos : getTopBlocks(world, origin, spheroid, random, pond_tries)) {
 			boolean canGenerate;
 			// check if all 4 sides of the future water pond are solid
@@ -45,7 +46,7 @@ public class PlantAroundPondDecorator extends SpheroidDecorator {
 			}
 			
 			if (canGenerate) {
-				world.setBlockState(pos, Blocks.WATER.getDefaultState(), 3);
+				writer.setBlockState(pos, Blocks.WATER.getDefaultState(), 3);
 				
 				// place sugar cane with chance
 				direction = Direction.Type.HORIZONTAL.iterator();
@@ -56,7 +57,7 @@ public class PlantAroundPondDecorator extends SpheroidDecorator {
 						int sugarCaneHeight = Support.getRandomBetween(random, minHeight, maxHeight);
 						for (int i = 0; i <= sugarCaneHeight; i++) {
 							if (block.canPlaceAt(world, sugarCaneBlockPos.up(i))) {
-								world.setBlockState(sugarCaneBlockPos.up(i), block, 3);
+								writer.setBlockState(sugarCaneBlockPos.up(i), block, 3);
 							}
 						}
 					}
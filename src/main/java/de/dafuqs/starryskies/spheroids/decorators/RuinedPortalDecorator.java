@@ -3,6 +3,8 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -32,11 +34,12 @@ public class RuinedPortalDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
 		BlockPos spheroidPosition = spheroid.getPosition();
+		DecorationWriteBuffer buffer = new DecorationWriteBuffer(writer);
 		
 		// place floor
 		for (int x = -spheroid.getRadius(); x <= spheroid.getRadius(); x++) {
@@ -50,12 +53,9 @@ public class RuinedPortalDecorator extends SpheroidDecorator {
 					if (Math.abs(x * z) * 1.5 < randomI * randomI) {
 						BlockPos currentBlockPos = new BlockPos(spheroidPosition.getX() + x, upperY, spheroidPosition.getZ() + z);
 						switch (random.nextInt(6)) {
-							case 0 -> world.setBlockState(currentBlockPos, MAGMA_BLOCK, 3);
-							case 1 -> {
-								world.setBlockState(currentBlockPos, LAVA, 3);
-								world.getChunk(currentBlockPos).markBlockForPostProcessing(currentBlockPos);
-							}
-							default -> world.setBlockState(currentBlockPos, NETHERRACK, 3);
+							case 0 -> buffer.setBlockState(currentBlockPos, MAGMA_BLOCK);
+							case 1 -> buffer.setBlockState(currentBlockPos, LAVA); // marked for post-processing when flushed
+							default -> buffer.setBlockState(currentBlockPos, NETHERRACK);
 						}
 					}
 				}
@@ -63,31 +63,35 @@ public class RuinedPortalDecorator extends SpheroidDecorator {
 		}
 		
 		// place portal
+		// the floor only replaces existing blocks, so the top blocks are still found in the same spot
 		int centerTopBlockY = Support.getLowerGroundBlock(world, new BlockPos(spheroidPosition.getX(), spheroidPosition.getY() + spheroid.getRadius() + 1, spheroidPosition.getZ()), spheroidPosition.getY());
 		BlockPos currentBlockPos = new BlockPos(spheroidPosition.getX(), centerTopBlockY, spheroidPosition.getZ());
 		
-		placePortalBlock(world, currentBlockPos, random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 1), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 1), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2), random);
+		placePortalBlock(buffer, currentBlockPos, random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 1), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 1), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2), random);
 		
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(1), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(1), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(2), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(2), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(3), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(3), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(4), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(4), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(1), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(1), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(2), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(2), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(3), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(3), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(4), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(4), random);
 		
-		placePortalBlock(world, currentBlockPos.up(5), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 1).up(5), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 1).up(5), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.SOUTH, 2).up(5), random);
-		placePortalBlock(world, currentBlockPos.offset(Direction.NORTH, 2).up(5), random);
+		placePortalBlock(buffer, currentBlockPos.up(5), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 1).up(5), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 1).up(5), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.SOUTH, 2).up(5), random);
+		placePortalBlock(buffer, currentBlockPos.offset(Direction.NORTH, 2).up(5), random);
+		
+		// the chest may end up on top of the portal
+		buffer.flush();
 		
 		// place loot chest
 		int randomX = Support.getRandomBetween(random, spheroidPosition.getX() - spheroid.getRadius() / 2, spheroidPosition.getX() + spheroid.getRadius() / 2);
@@ -96,13 +100,13 @@ public class RuinedPortalDecorator extends SpheroidDecorator {
 		
 		if (centerTopBlockY != spheroidPosition.getY()) {
 			BlockPos lootChestPosition = new BlockPos(randomX, centerTopBlockY, randomZ).up();
-			placeLootChest(world, lootChestPosition, lootTable, random);
+			placeLootChest(writer, lootChestPosition, lootTable, random);
 		}
 	}
 	
-	private void placePortalBlock(StructureWorldAccess world, BlockPos blockPos, Random random) {
+	private void placePortalBlock(DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		if (random.nextFloat() < OBSIDIAN_CHANCE) {
-			world.setBlockState(blockPos, OBSIDIAN, 3);
+			buffer.setBlockState(blockPos, OBSIDIAN);
 		}
 	}
 	
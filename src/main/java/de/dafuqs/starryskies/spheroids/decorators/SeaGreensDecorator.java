@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -28,7 +29,7 @@ public class SeaGreensDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getCaveBottomBlocks(world, origin, spheroid)) {
 			int r = random.nextInt(4);
 			
@@ -37,18 +38,18 @@ public class SeaGreensDecorator extends SpheroidDecorator {
 				for (int i = 0; i < kelpHeight; i++) {
 					if (world.getBlockState(bp.up(i + 1)).getBlock() == Blocks.WATER) {
 						if (world.getBlockState(bp.up(i + 2)).getBlock() == Blocks.WATER && i < kelpHeight - 1) {
-							world.setBlockState(bp.up(i + 1), KELP_PLANT, 3); // middle parts
+							writer.setBlockState(bp.up(i + 1), KELP_PLANT, 3); // middle parts
 						} else {
-							world.setBlockState(bp.up(i + 1), KELP, 3); // the top
+							writer.setBlockState(bp.up(i + 1), KELP, 3); // the top
 						}
 					}
 				}
 			} else if (r == 1) {
-				world.setBlockState(bp.up(), SEAGRASS, 3);
+				writer.setBlockState(bp.up(), SEAGRASS, 3);
 			} else if (r == 2) {
 				if (world.getBlockState(bp.up(2)).getBlock() == Blocks.WATER) {
-					world.setBlockState(bp.up(2), TALL_SEAGRASS_UPPER, 3);
-					world.setBlockState(bp.up(), TALL_SEAGRASS_LOWER, 3);
+					writer.setBlockState(bp.up(2), TALL_SEAGRASS_UPPER, 3);
+					writer.setBlockState(bp.up(), TALL_SEAGRASS_LOWER, 3);
 				}
 			}
 		}
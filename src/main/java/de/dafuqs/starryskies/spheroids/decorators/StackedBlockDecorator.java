@@ -3,6 +3,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -31,13 +32,13 @@ public class StackedBlockDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		for (BlockPos bp : getTopBlocks(world, origin, spheroid)) {
 			if (random.nextFloat() < chance) {
 				int height = Support.getRandomBetween(random, minHeight, maxHeight);
 				for (int i = 0; i < height; i++) {
 					if (block.canPlaceAt(world, bp.up(i + 1))) {
-						world.setBlockState(bp.up(i + 1), block, 3);
+						writer.setBlockState(bp.up(i + 1), block, 3);
 					}
 				}
 			}
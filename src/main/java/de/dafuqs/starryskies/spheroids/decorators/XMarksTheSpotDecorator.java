@@ -2,6 +2,7 @@ package de.dafuqs.starryskies.spheroids.decorators;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.spheroids.Spheroid;
 import net.minecraft.block.BlockState;
@@ -39,26 +40,26 @@ public class XMarksTheSpotDecorator extends SpheroidDecorator {
 	}
 	
 	@Override
-	public void decorate(StructureWorldAccess world, ChunkPos origin, Spheroid spheroid, Random random) {
+	public void decorate(StructureWorldAccess world, RegionClippingWriter writer, ChunkPos origin, Spheroid spheroid, Random random) {
 		if (!spheroid.isCenterInChunk(origin)) {
 			return;
 		}
 		
-		placeLootChest(world, spheroid.getPosition(), lootTable, random);
+		placeLootChest(writer, spheroid.getPosition(), lootTable, random);
 		
 		// paint 1-3 "X"es on the sphere in random directions
 		int r = random.nextInt(6);
 		int amountOfXMarks = random.nextInt(2) + 1;
 		for (int i = 0; i < amountOfXMarks; i++) {
 			Direction randomDirection = Direction.values()[(r + i) % 6];
-			paintXInDirection(world, spheroid, randomDirection);
+			paintXInDirection(world, writer, spheroid, randomDirection);
 		}
 	}
 	
 	/**
 	 * Draws an "X" in a 5x5 pattern on a sphere.
 	 */
-	private void paintXInDirection(StructureWorldAccess world, Spheroid spheroid, Direction direction) {
+	private void paintXInDirection(StructureWorldAccess world, RegionClippingWriter writer, Spheroid spheroid, Direction direction) {
 		int startX;
 		int startY;
 		int startZ;
@@ -109,7 +110,7 @@ public class XMarksTheSpotDecorator extends SpheroidDecorator {
 					}
 					BlockPos currentBlockPos = findNextNonAirBlockInDirection(world, startBlockPos, direction, spheroid.getRadius());
 					if (currentBlockPos != null) {
-						world.setBlockState(currentBlockPos, markingBlock, 3);
+						writer.setBlockState(currentBlockPos, markingBlock, 3);
 					}
 				}
 			}
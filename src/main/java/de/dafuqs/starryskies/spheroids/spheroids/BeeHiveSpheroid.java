@@ -19,24 +19,25 @@ import net.minecraft.world.*;
 import net.minecraft.world.chunk.*;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class BeeHiveSpheroid extends Spheroid {
 	
 	private final int shellRadius;
 	private final int flowerRingRadius;
 	private final int flowerRingSpacing;
-	private BeehiveBlockEntity queenBeehiveBlockEntity;
+	private volatile BeehiveBlockEntity queenBeehiveBlockEntity;
 	private final List<BeehiveBlockEntity> outerBeehiveBlockEntities;
 	
-	public BeeHiveSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public BeeHiveSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                       int shellRadius, int flowerRingRadius, int flowerRingSpacing) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		
 		this.shellRadius = shellRadius;
 		this.flowerRingRadius = flowerRingRadius;
 		this.flowerRingSpacing = flowerRingSpacing;
-		this.outerBeehiveBlockEntities = new ArrayList<>();
+		this.outerBeehiveBlockEntities = new CopyOnWriteArrayList<>();
 	}
 	
 	
@@ -62,11 +63,11 @@ public class BeeHiveSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public BeeHiveSpheroid generate(ChunkRandom random) {
+		public BeeHiveSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, minShellSize, maxShellSize);
 			int flowerRingRadius = Support.getRandomBetween(random, minFlowerRingRadius, maxFlowerRingRadius);
 			int flowerRingSpacing = Support.getRandomBetween(random, minFlowerRingSpacing, maxFlowerRingSpacing);
-			return new BeeHiveSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, shellRadius, flowerRingRadius, flowerRingSpacing);
+			return new BeeHiveSpheroid(this, radius, selectDecorators(random), selectSpawns(random), shellRadius, flowerRingRadius, flowerRingSpacing);
 		}
 		
 	}
@@ -83,7 +84,25 @@ public class BeeHiveSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		float startRingDistance = this.radius - this.flowerRingRadius;
+		float shellDistance = startRingDistance - this.flowerRingSpacing;
+		float coreDistance = shellDistance - shellRadius;
+		
+		// the grass ring around the hive, at the height of its center
+		int y = this.getPosition().getY();
+		long d = Support.getRoundedDistance(x - this.getPosition().getX(), 0, z - this.getPosition().getZ());
+		if (d > startRingDistance && d <= this.radius && y >= bottomY && y < bottomY + states.length) {
+			states[y - bottomY] = COLUMN_SAMPLE_SOLID;
+		}
+		
+		sampleBand(x, z, shellDistance, COLUMN_SAMPLE_SOLID, states, bottomY);
+		// the core is honey towards its edge, but always air close to its center
+		sampleBand(x, z, coreDistance - (float) Math.ceil(coreDistance / 3F), Blocks.AIR.getDefaultState(), states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int chunkX = chunk.getPos().x;
 		int chunkZ = chunk.getPos().z;
 		
@@ -97,14 +116,14 @@ public class BeeHiveSpheroid extends Spheroid {
 		float coreDistance = shellDistance - shellRadius;
 		
 		BlockState beeHiveBlockState = Blocks.BEE_NEST.getDefaultState();
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
+		ChunkRandom random = getChunkRandom(chunk.getPos());
 		int ceiledRadius = (int) Math.ceil(this.radius);
 		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
 		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
 		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
 			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
 				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
+					long d = Support.getRoundedDistance(x2 - x, y2 - y, z2 - z);
 					if (d > this.radius) {
 						continue;
 					}
@@ -112,9 +131,9 @@ public class BeeHiveSpheroid extends Spheroid {
 					
 					if (d == 0) {
 						// bee hive in center
-						chunk.setBlockState(currBlockPos, beeHiveBlockState, false);
+						writer.setBlockState(x2, y2, z2, beeHiveBlockState);
 						this.queenBeehiveBlockEntity = new BeehiveBlockEntity(currBlockPos, beeHiveBlockState);
-						chunk.setBlockEntity(queenBeehiveBlockEntity);
+						setBlockEntity(chunk, queenBeehiveBlockEntity);
 					} else if (d == shellDistance && y2 - y == 0 && random.nextInt(10) == 0) {
 						// middle outer shell: random hives
 						Direction direction;
@@ -143,36 +162,36 @@ public class BeeHiveSpheroid extends Spheroid {
 						}
 						// set the block
 						BlockState blockState = Blocks.BEE_NEST.getDefaultState().with(BeehiveBlock.FACING, direction);
-						chunk.setBlockState(currBlockPos, blockState, false);
+						writer.setBlockState(x2, y2, z2, blockState);
 						
 						// set and save the blockentity
 						BeehiveBlockEntity outerBeehiveBlockEntity = new BeehiveBlockEntity(currBlockPos, blockState);
-						chunk.setBlockEntity(outerBeehiveBlockEntity);
+						setBlockEntity(chunk, outerBeehiveBlockEntity);
 						this.outerBeehiveBlockEntities.add(outerBeehiveBlockEntity);
 					} else if (d <= coreDistance) {
 						// core
 						int r = random.nextInt((int) Math.ceil(coreDistance / 3F)); // way more honey in the middle
 						if (coreDistance - r <= d) {
-							chunk.setBlockState(currBlockPos, Blocks.HONEY_BLOCK.getDefaultState(), false);
+							writer.setBlockState(x2, y2, z2, Blocks.HONEY_BLOCK.getDefaultState());
 						} else {
-							chunk.setBlockState(currBlockPos, Blocks.AIR.getDefaultState(), false);
+							writer.setBlockState(x2, y2, z2, Blocks.AIR.getDefaultState());
 						}
 					} else if (d <= shellDistance) {
 						// shell
 						if (random.nextInt(10) == 0) {
-							chunk.setBlockState(currBlockPos, Blocks.HONEY_BLOCK.getDefaultState(), false);
+							writer.setBlockState(x2, y2, z2, Blocks.HONEY_BLOCK.getDefaultState());
 						} else {
-							chunk.setBlockState(currBlockPos, Blocks.HONEYCOMB_BLOCK.getDefaultState(), false);
+							writer.setBlockState(x2, y2, z2, Blocks.HONEYCOMB_BLOCK.getDefaultState());
 						}
 					} else if (y - y2 == 0 && d > startRingDistance && d <= endRingDistance) {
-						chunk.setBlockState(currBlockPos, Blocks.GRASS_BLOCK.getDefaultState(), false);
+						writer.setBlockState(x2, y2, z2, Blocks.GRASS_BLOCK.getDefaultState());
 						int rand = random.nextInt(4);
 						if (rand == 0) {
-							chunk.setBlockState(currBlockPos.up(), getRandomFlower(random), false);
+							writer.setBlockState(x2, y2 + 1, z2, getRandomFlower(random));
 						} else if (rand == 1) {
 							BlockState randomTallFlower = getRandomTallFlower(random);
-							chunk.setBlockState(currBlockPos.up(), randomTallFlower.with(TallPlantBlock.HALF, DoubleBlockHalf.LOWER), false);
-							chunk.setBlockState(currBlockPos.up(2), randomTallFlower.with(TallPlantBlock.HALF, DoubleBlockHalf.UPPER), false);
+							writer.setBlockState(x2, y2 + 1, z2, randomTallFlower.with(TallPlantBlock.HALF, DoubleBlockHalf.LOWER));
+							writer.setBlockState(x2, y2 + 2, z2, randomTallFlower.with(TallPlantBlock.HALF, DoubleBlockHalf.UPPER));
 						}
 					}
 				}
@@ -4,7 +4,9 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.command.argument.BlockArgumentParser;
@@ -29,10 +31,10 @@ public class CaveSpheroid extends Spheroid {
 	private final float shellRadius;
 	Identifier chestLootTable;
 	
-	public CaveSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public CaveSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                    BlockState caveFloorBlock, BlockState shellBlock, float shellRadius, BlockState topBlock, BlockState bottomBlock, Identifier chestLootTable) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		
 		this.caveFloorBlock = caveFloorBlock;
 		this.shellBlock = shellBlock;
@@ -77,14 +79,14 @@ public class CaveSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public CaveSpheroid generate(ChunkRandom random) {
+		public CaveSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, this.minShellRadius, this.maxShellRadius);
 			
 			Identifier lootTable = null;
 			if (random.nextFloat() < lootTableChance) {
 				lootTable = this.lootTable;
 			}
-			return new CaveSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, caveFloorBlock, shellBlock.get(random), shellRadius, topBlock, bottomBlock, lootTable);
+			return new CaveSpheroid(this, radius, selectDecorators(random), selectSpawns(random), caveFloorBlock, shellBlock.get(random), shellRadius, topBlock, bottomBlock, lootTable);
 		}
 		
 	}
@@ -108,52 +110,48 @@ public class CaveSpheroid extends Spheroid {
 		return s;
 	}
 	
+	private float getCaveRadius() {
+		// blocks further out than radius - 1 always belong to the outer shell, with the bottom and top blocks
+		return Math.min(this.radius - this.shellRadius, this.radius - 1);
+	}
+	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
+	protected float getAnalyticCaveRadius() {
+		// the chest sitting on the cave floor would be the floor in its column instead
+		if (this.chestLootTable != null || !areSolid(this.shellBlock, this.caveFloorBlock, this.topBlock, this.bottomBlock)) {
+			return Float.NaN;
+		}
+		return getCaveRadius();
+	}
+	
+	@Override
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the loot chest is a single block and gets left out
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, getCaveRadius(), this.coreBlock, states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int x = this.getPosition().getX();
 		int y = this.getPosition().getY();
 		int z = this.getPosition().getZ();
 		
-		boolean hasChest = this.chestLootTable != null;
+		float caveRadius = getCaveRadius();
+		
+		new SpheroidShape()
+				.band(caveRadius, this.coreBlock) // always CAVE_AIR
+				.floor(this.caveFloorBlock == null ? this.shellBlock : this.caveFloorBlock)
+				.band(this.radius, this.shellBlock)
+				.bottom(this.bottomBlock)
+				.top(this.topBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 		
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d > this.radius - 1) {
-						if (bottomBlock != null && isBottomBlock(d, x2, y2, z2)) {
-							chunk.setBlockState(currBlockPos, this.bottomBlock, false);
-						} else if (topBlock != null && isTopBlock(d, x2, y2, z2)) {
-							chunk.setBlockState(currBlockPos, this.topBlock, false);
-						} else {
-							chunk.setBlockState(currBlockPos, this.shellBlock, false);
-						}
-					} else if (isAboveCaveFloorBlock(d, x2, y2, z2, shellRadius)) {
-						if (this.caveFloorBlock == null) {
-							chunk.setBlockState(currBlockPos.down(), this.shellBlock, false);
-						} else {
-							chunk.setBlockState(currBlockPos.down(), this.caveFloorBlock, false);
-						}
-						if (hasChest && x2 - x == 0 && z2 - z == 0) {
-							placeCenterChestWithLootTable(chunk, currBlockPos, chestLootTable, random, false);
-						}
-					} else if (d <= this.radius - this.shellRadius) {
-						chunk.setBlockState(currBlockPos, this.coreBlock, false); // always CAVE_AIR
-					} else if (d < this.radius) {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
-					}
-				}
+		if (this.chestLootTable != null && Support.isBlockPosInChunkPos(chunk.getPos(), this.getPosition())) {
+			// the chest sits on the floor of the center column
+			int caveHalfHeight = Support.getColumnHalfHeight(0, caveRadius);
+			if (caveHalfHeight >= 0 && isAboveCaveFloorBlock(caveHalfHeight, x, y - caveHalfHeight, z, shellRadius)) {
+				placeCenterChestWithLootTable(writer, chunk, new BlockPos(x, y - caveHalfHeight, z), chestLootTable, getChunkRandom(chunk.getPos()), false);
 			}
 		}
 	}
@@ -4,6 +4,7 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
@@ -54,10 +55,10 @@ public class CoralsSpheroid extends Spheroid {
 		add(Blocks.SEA_PICKLE.getDefaultState().with(SeaPickleBlock.WATERLOGGED, true).with(SeaPickleBlock.PICKLES, 4));
 	}};
 	
-	public CoralsSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public CoralsSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                      BlockState shellBlock, float shellRadius, Identifier centerChestLootTable) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.shellBlock = shellBlock;
 		this.shellRadius = shellRadius;
 		this.centerChestLootTable = centerChestLootTable;
@@ -81,7 +82,7 @@ public class CoralsSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public CoralsSpheroid generate(ChunkRandom random) {
+		public CoralsSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, this.minShellRadius, this.maxShellRadius);
 			BlockState shellBlockState = validShellBlocks.get(random);
 			
@@ -90,7 +91,7 @@ public class CoralsSpheroid extends Spheroid {
 				lootTable = this.lootTable;
 			}
 			
-			return new CoralsSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, shellBlockState, shellRadius, lootTable);
+			return new CoralsSpheroid(this, radius, selectDecorators(random), selectSpawns(random), shellBlockState, shellRadius, lootTable);
 		}
 		
 	}
@@ -104,7 +105,14 @@ public class CoralsSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the corals inside are scattered at random, so the whole inside is sampled as water
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, this.radius - this.shellRadius, WATER, states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int chunkX = chunk.getPos().x;
 		int chunkZ = chunk.getPos().z;
 		
@@ -114,38 +122,38 @@ public class CoralsSpheroid extends Spheroid {
 		
 		boolean hasChest = this.centerChestLootTable != null;
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
+		ChunkRandom random = getChunkRandom(chunk.getPos());
 		int ceiledRadius = (int) Math.ceil(this.radius);
 		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
 		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
 		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
 			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
 				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
+					long d = Support.getRoundedDistance(x2 - x, y2 - y, z2 - z);
 					if (d > this.radius) {
 						continue;
 					}
 					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
 					
 					if (d == 0 && hasChest) {
-						placeCenterChestWithLootTable(chunk, currBlockPos, this.centerChestLootTable, random, true);
+						placeCenterChestWithLootTable(writer, chunk, currBlockPos, this.centerChestLootTable, random, true);
 					} else if (d <= (this.radius - this.shellRadius - 1)) {
 						int rand = random.nextInt(7);
 						if (rand < 2) {
 							BlockState coral = getRandomCoralBlock(random);
-							if (rand == 0 && chunk.getBlockState(currBlockPos.down()).getBlock() == Blocks.WATER) {
-								chunk.setBlockState(currBlockPos.down(), coral, false);
-								chunk.setBlockState(currBlockPos, getRandomWaterLoggableBlock(random), false);
+							if (rand == 0 && writer.getBlockState(x2, y2 - 1, z2).getBlock() == Blocks.WATER) {
+								writer.setBlockState(x2, y2 - 1, z2, coral);
+								writer.setBlockState(x2, y2, z2, getRandomWaterLoggableBlock(random));
 							} else {
-								chunk.setBlockState(currBlockPos, coral, false);
+								writer.setBlockState(x2, y2, z2, coral);
 							}
 						} else {
-							chunk.setBlockState(currBlockPos, WATER, false);
+							writer.setBlockState(x2, y2, z2, WATER);
 						}
 					} else if (d <= (this.radius - this.shellRadius)) {
-						chunk.setBlockState(currBlockPos, WATER, false);
+						writer.setBlockState(x2, y2, z2, WATER);
 					} else {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
+						writer.setBlockState(x2, y2, z2, this.shellBlock);
 					}
 				}
 			}
@@ -4,13 +4,14 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.world.chunk.Chunk;
 
@@ -22,10 +23,10 @@ public class CoreSpheroid extends Spheroid {
 	private final BlockState shellBlock;
 	private float coreRadius;
 	
-	public CoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public CoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                    BlockState coreBlock, BlockState shellBlock, float coreRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.coreBlock = coreBlock;
 		this.shellBlock = shellBlock;
 		this.coreRadius = coreRadius;
@@ -53,11 +54,10 @@ public class CoreSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public CoreSpheroid generate(ChunkRandom random) {
-			float radius = randomBetween(random, minSize, maxSize);
+		public CoreSpheroid generate(ChunkRandom random, float radius) {
 			int coreRadius = Support.getRandomBetween(random, this.minCoreRadius, this.maxCoreRadius);
 			coreRadius = Math.min(coreRadius, (int) radius - 1);
-			return new CoreSpheroid(this, radius, selectDecorators(random), selectSpawns(random), random, coreBlock.get(random), shellBlock.get(random), coreRadius);
+			return new CoreSpheroid(this, radius, selectDecorators(random), selectSpawns(random), coreBlock.get(random), shellBlock.get(random), coreRadius);
 		}
 		
 	}
@@ -72,35 +72,16 @@ public class CoreSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= this.coreRadius) {
-						chunk.setBlockState(currBlockPos, this.coreBlock, false);
-					} else {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
-					}
-				}
-			}
-		}
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.coreBlock, this.shellBlock) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.band(this.coreRadius, this.coreBlock)
+				.band(this.radius, this.shellBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
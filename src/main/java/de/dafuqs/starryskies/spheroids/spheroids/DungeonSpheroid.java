@@ -4,10 +4,11 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
-import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.ChestBlockEntity;
 import net.minecraft.block.entity.MobSpawnerBlockEntity;
 import net.minecraft.entity.EntityType;
@@ -20,6 +21,8 @@ import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class DungeonSpheroid extends Spheroid {
@@ -28,10 +31,10 @@ public class DungeonSpheroid extends Spheroid {
 	private final BlockState shellBlock;
 	private final float shellRadius;
 	
-	public DungeonSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public DungeonSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                       EntityType entityType, BlockState shellBlock, float shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		
 		this.entityType = entityType;
 		this.shellBlock = shellBlock;
@@ -56,9 +59,9 @@ public class DungeonSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public DungeonSpheroid generate(ChunkRandom random) {
+		public DungeonSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, this.minShellRadius, this.maxShellRadius);
-			return new DungeonSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, entityType, shellBlock.get(random), shellRadius);
+			return new DungeonSpheroid(this, radius, selectDecorators(random), selectSpawns(random), entityType, shellBlock.get(random), shellRadius);
 		}
 		
 	}
@@ -75,7 +78,14 @@ public class DungeonSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the spawner and chests are single blocks and get left out
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, this.radius - this.shellRadius, Blocks.CAVE_AIR.getDefaultState(), states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int chunkX = chunk.getPos().x;
 		int chunkZ = chunk.getPos().z;
 		
@@ -85,42 +95,49 @@ public class DungeonSpheroid extends Spheroid {
 		
 		BlockState chestBlockState = Blocks.CHEST.getDefaultState();
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
+		ChunkRandom random = getChunkRandom(chunk.getPos());
+		new SpheroidShape()
+				.band(this.radius - this.shellRadius, Blocks.CAVE_AIR.getDefaultState())
+				.band(this.radius, this.shellBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+		
+		if (Support.isBlockPosInChunkPos(chunk.getPos(), this.getPosition()) && this.radius >= 0) {
+			BlockPos spawnerPos = this.getPosition();
+			writer.setBlockState(spawnerPos, Blocks.SPAWNER.getDefaultState());
+			MobSpawnerBlockEntity mobSpawnerBlockEntity = new MobSpawnerBlockEntity(spawnerPos, Blocks.SPAWNER.getDefaultState());
+			mobSpawnerBlockEntity.getLogic().setEntityId(this.entityType);
+			setBlockEntity(chunk, mobSpawnerBlockEntity);
+		}
+		
 		int ceiledRadius = (int) Math.ceil(this.radius);
 		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
 		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
+		List<BlockPos> chestCandidates = new ArrayList<>();
 		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d == 0) {
-						chunk.setBlockState(currBlockPos, Blocks.SPAWNER.getDefaultState(), false);
-						chunk.setBlockEntity(new MobSpawnerBlockEntity(currBlockPos, Blocks.SPAWNER.getDefaultState()));
-						BlockEntity blockEntity_1 = chunk.getBlockEntity(currBlockPos);
-						if (blockEntity_1 instanceof MobSpawnerBlockEntity) {
-							((MobSpawnerBlockEntity) blockEntity_1).getLogic().setEntityId(this.entityType);
-						}
-					} else if (d == (this.radius - this.shellRadius - 1) &&
-							Math.round(Support.getDistance(x, y, z, x2, y2 - 1, z2)) == (this.radius - this.shellRadius) && random.nextInt((int) radius * 8) == 0) {
-						
-						chunk.setBlockState(currBlockPos, chestBlockState, false);
-						chunk.setBlockEntity(new ChestBlockEntity(currBlockPos, chestBlockState));
-						BlockEntity chestBlockEntity = chunk.getBlockEntity(currBlockPos);
-						if (chestBlockEntity instanceof ChestBlockEntity) {
-							((ChestBlockEntity) chestBlockEntity).setLootTable(LootTables.SIMPLE_DUNGEON_CHEST, random.nextLong());
-						}
-					} else if (d <= (this.radius - this.shellRadius)) {
-						chunk.setBlockState(currBlockPos, Blocks.CAVE_AIR.getDefaultState(), false);
-					} else {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
+			for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
+				// chests can only be placed on the lowest block of the band right inside the floor
+				int columnDistance = (x2 - x) * (x2 - x) + (z2 - z) * (z2 - z);
+				int chestHalfHeight = Support.getColumnHalfHeight(columnDistance, this.radius - this.shellRadius - 1);
+				if (chestHalfHeight >= 0) {
+					long d = Support.getRoundedDistance(x2 - x, -chestHalfHeight, z2 - z);
+					if (d != 0 && d == (this.radius - this.shellRadius - 1) &&
+							Support.getRoundedDistance(x2 - x, -chestHalfHeight - 1, z2 - z) == (this.radius - this.shellRadius)) {
+						chestCandidates.add(new BlockPos(x2, y - chestHalfHeight, z2));
 					}
 				}
 			}
+			
+			// roll for the chests in the same order as going through the spheroid block by block would
+			chestCandidates.sort(Comparator.comparingInt(BlockPos::getY).thenComparingInt(BlockPos::getZ));
+			for (BlockPos currBlockPos : chestCandidates) {
+				if (random.nextInt((int) radius * 8) == 0) {
+					writer.setBlockState(currBlockPos, chestBlockState);
+					ChestBlockEntity chestBlockEntity = new ChestBlockEntity(currBlockPos, chestBlockState);
+					chestBlockEntity.setLootTable(LootTables.SIMPLE_DUNGEON_CHEST, random.nextLong());
+					setBlockEntity(chunk, chestBlockEntity);
+				}
+			}
+			chestCandidates.clear();
 		}
 	}
 	
@@ -3,7 +3,11 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.EndRodBlock;
@@ -28,8 +32,8 @@ import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.WorldAccess;
 import net.minecraft.world.chunk.Chunk;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class EndCitySpheroid extends Spheroid {
 	
@@ -43,13 +47,13 @@ public class EndCitySpheroid extends Spheroid {
 	private final Identifier END_CITY_TREASURE_CHEST = LootTables.END_CITY_TREASURE_CHEST;
 	
 	private final int shellRadius;
-	private final ArrayList<BlockPos> interiorDecoratorPositions = new ArrayList<>();
+	private final List<BlockPos> interiorDecoratorPositions = new CopyOnWriteArrayList<>();
 	
 	
-	public EndCitySpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public EndCitySpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                       int shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.shellRadius = shellRadius;
 	}
 	
@@ -67,9 +71,14 @@ public class EndCitySpheroid extends Spheroid {
 		}
 		
 		@Override
-		public EndCitySpheroid generate(ChunkRandom random) {
+		public boolean isSolidThroughout() {
+			return true;
+		}
+		
+		@Override
+		public EndCitySpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, minShellRadius, maxShellRadius);
-			return new EndCitySpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, shellRadius);
+			return new EndCitySpheroid(this, radius, selectDecorators(random), selectSpawns(random), shellRadius);
 		}
 		
 	}
@@ -84,43 +93,13 @@ public class EndCitySpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.band(this.radius - this.shellRadius, PURPUR_BLOCK)
+				.positionalBand(this.radius, (x2, y2, z2) -> y2 % 2 == 0 ? END_STONE_BRICKS : PURPUR_BLOCK)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= (this.radius - this.shellRadius)) {
-						chunk.setBlockState(currBlockPos, PURPUR_BLOCK, false);
-					} else {
-						if (y2 % 2 == 0) {
-							chunk.setBlockState(currBlockPos, END_STONE_BRICKS, false);
-						} else {
-							chunk.setBlockState(currBlockPos, PURPUR_BLOCK, false);
-						}
-					}
-					
-					if (d < this.getRadius() - 9 && (y2 % 10 == (this.position.getY() + 9) % 10 && x2 % 10 == (this.position.getX()) % 10 && z2 % 10 == (this.position.getZ()) % 10)) {
-						interiorDecoratorPositions.add(currBlockPos);
-					}
-				}
-			}
-		}
+		interiorDecoratorPositions.addAll(getRoomPositions(chunk.getPos(), this.getRadius() - 9));
 	}
 	
 	/**
@@ -133,51 +112,53 @@ public class EndCitySpheroid extends Spheroid {
 	@Override
 	public void decorate(StructureWorldAccess world, BlockPos origin, Random random) {
 		ChunkPos originChunkPos = new ChunkPos(origin);
+		DecorationWriteBuffer buffer = new DecorationWriteBuffer(new RegionClippingWriter(world));
 		for (BlockPos interiorDecoratorPosition : interiorDecoratorPositions) {
 			if (Support.isBlockPosInChunkPos(originChunkPos, interiorDecoratorPosition)) {
 				int randomStructure = random.nextInt(8);
 				switch (randomStructure) {
-					case 0 -> placeSolid(world, interiorDecoratorPosition);
-					case 1 -> placeEmpty(world, interiorDecoratorPosition);
-					case 2 -> placeElytra(world, interiorDecoratorPosition);
-					case 3 -> placeTreasure(world, interiorDecoratorPosition);
-					case 4 -> placeBrewingStand(world, interiorDecoratorPosition);
-					case 5 -> placeDragonHead(world, interiorDecoratorPosition);
+					case 0 -> placeSolid(buffer, interiorDecoratorPosition);
+					case 1 -> placeEmpty(buffer, interiorDecoratorPosition);
+					case 2 -> placeElytra(world, buffer, interiorDecoratorPosition);
+					case 3 -> placeTreasure(world, buffer, interiorDecoratorPosition, random);
+					case 4 -> placeBrewingStand(world, buffer, interiorDecoratorPosition);
+					case 5 -> placeDragonHead(buffer, interiorDecoratorPosition, random);
 					default -> // double chance
-							placeShulkerSpawner(world, interiorDecoratorPosition);
+							placeShulkerSpawner(buffer, interiorDecoratorPosition);
 				}
 			}
 		}
+		buffer.flush();
 	}
 	
-	private void placeSolid(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeSolid(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, PURPUR_BLOCK, 3);
+					buffer.setBlockState(destinationBlockPos, PURPUR_BLOCK);
 				}
 			}
 		}
 	}
 	
-	private void placeEmpty(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeEmpty(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 	}
 	
-	private void placeShulkerSpawner(StructureWorldAccess world, BlockPos blockPos) {
+	private void placeShulkerSpawner(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					world.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
@@ -187,30 +168,31 @@ public class EndCitySpheroid extends Spheroid {
 			for (int y2 = -1; y2 < 2; y2++) {
 				for (int z2 = -1; z2 < 2; z2++) {
 					BlockPos destinationBlockPos = spawnerPos.add(x2, y2, z2);
-					world.setBlockState(destinationBlockPos, MAGENTA_STAINED_GLASS, 3);
+					buffer.setBlockState(destinationBlockPos, MAGENTA_STAINED_GLASS);
 				}
 			}
 		}
 		
-		world.setBlockState(spawnerPos.up(1), PURPUR_PILLAR, 3);
-		world.setBlockState(spawnerPos.up(2), PURPUR_PILLAR, 3);
-		world.setBlockState(spawnerPos.up(3), PURPUR_PILLAR, 3);
+		buffer.setBlockState(spawnerPos.up(1), PURPUR_PILLAR);
+		buffer.setBlockState(spawnerPos.up(2), PURPUR_PILLAR);
+		buffer.setBlockState(spawnerPos.up(3), PURPUR_PILLAR);
 		
-		placeSpawner(world, spawnerPos, EntityType.SHULKER);
+		placeSpawner(buffer, spawnerPos, EntityType.SHULKER);
 	}
 	
-	private void placeBrewingStand(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeBrewingStand(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 		
-		worldAccess.setBlockState(blockPos, PURPUR_PILLAR, 3);
-		worldAccess.setBlockState(blockPos.up(), Blocks.BREWING_STAND.getDefaultState(), 3);
+		buffer.setBlockState(blockPos, PURPUR_PILLAR);
+		buffer.setBlockState(blockPos.up(), Blocks.BREWING_STAND.getDefaultState());
+		buffer.flush();
 		
 		BlockEntity blockEntity = worldAccess.getBlockEntity(blockPos.up());
 		
@@ -226,36 +208,38 @@ public class EndCitySpheroid extends Spheroid {
 		}
 	}
 	
-	private void placeTreasure(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeTreasure(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 		
 		BlockState enderChestBlockState = Blocks.ENDER_CHEST.getDefaultState();
 		BlockPos randomPos = blockPos.add(random.nextInt(9) - 4, 0, random.nextInt(9) - 4);
-		worldAccess.setBlockState(randomPos, enderChestBlockState, 3);
+		buffer.setBlockState(randomPos, enderChestBlockState);
+		buffer.flush();
 		
 		// may override the ender chest in very rare circumstances
 		placeCenterChestWithLootTable(worldAccess.getChunk(blockPos), blockPos, END_CITY_TREASURE_CHEST, random, false);
 	}
 	
-	private void placeElytra(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeElytra(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 		
-		worldAccess.setBlockState(blockPos, PURPUR_PILLAR, 3);
-		worldAccess.setBlockState(blockPos.up(), Blocks.CHEST.getDefaultState(), 3);
+		buffer.setBlockState(blockPos, PURPUR_PILLAR);
+		buffer.setBlockState(blockPos.up(), Blocks.CHEST.getDefaultState());
+		buffer.flush();
 		ItemStack elytraItemStack = new ItemStack(Items.ELYTRA, 1);
 		
 		BlockEntity blockEntity = worldAccess.getBlockEntity(blockPos.up());
@@ -264,38 +248,38 @@ public class EndCitySpheroid extends Spheroid {
 		}
 	}
 	
-	private void placeDragonHead(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeDragonHead(DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 		
-		worldAccess.setBlockState(blockPos, PURPUR_PILLAR, 3);
-		worldAccess.setBlockState(blockPos.up(), PURPUR_PILLAR, 3);
-		worldAccess.setBlockState(blockPos.up(2), Blocks.END_ROD.getDefaultState().with(EndRodBlock.FACING, Direction.UP), 3);
+		buffer.setBlockState(blockPos, PURPUR_PILLAR);
+		buffer.setBlockState(blockPos.up(), PURPUR_PILLAR);
+		buffer.setBlockState(blockPos.up(2), Blocks.END_ROD.getDefaultState().with(EndRodBlock.FACING, Direction.UP));
 		
 		int randomPosition = random.nextInt(4);
 		BlockState dragonHeadBlockState;
 		switch (randomPosition) {
 			case 0 -> {
 				dragonHeadBlockState = DRAGON_WALL_HEAD.with(WallSkullBlock.FACING, Direction.NORTH);
-				worldAccess.setBlockState(blockPos.up().north(), dragonHeadBlockState, 3);
+				buffer.setBlockState(blockPos.up().north(), dragonHeadBlockState);
 			}
 			case 1 -> {
 				dragonHeadBlockState = DRAGON_WALL_HEAD.with(WallSkullBlock.FACING, Direction.EAST);
-				worldAccess.setBlockState(blockPos.up().east(), dragonHeadBlockState, 3);
+				buffer.setBlockState(blockPos.up().east(), dragonHeadBlockState);
 			}
 			case 2 -> {
 				dragonHeadBlockState = DRAGON_WALL_HEAD.with(WallSkullBlock.FACING, Direction.SOUTH);
-				worldAccess.setBlockState(blockPos.up().south(), dragonHeadBlockState, 3);
+				buffer.setBlockState(blockPos.up().south(), dragonHeadBlockState);
 			}
 			default -> {
 				dragonHeadBlockState = DRAGON_WALL_HEAD.with(WallSkullBlock.FACING, Direction.WEST);
-				worldAccess.setBlockState(blockPos.up().west(), dragonHeadBlockState, 3);
+				buffer.setBlockState(blockPos.up().west(), dragonHeadBlockState);
 			}
 		}
 	}
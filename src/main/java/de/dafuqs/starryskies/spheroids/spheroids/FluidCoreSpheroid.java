@@ -4,7 +4,9 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.entity.EntityType;
@@ -30,10 +32,10 @@ public class FluidCoreSpheroid extends Spheroid {
 	private final BlockState coreBlock;
 	private float coreRadius;
 	
-	public FluidCoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public FluidCoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                         BlockState fluidBlock, BlockState shellBlock, float shellRadius, float fillAmount, boolean holeInBottom, BlockState coreBlock, float coreRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.fluidBlock = fluidBlock;
 		this.shellBlock = shellBlock;
 		this.shellRadius = shellRadius;
@@ -84,13 +86,13 @@ public class FluidCoreSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public FluidCoreSpheroid generate(ChunkRandom random) {
+		public FluidCoreSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, this.minShellRadius, this.maxShellRadius);
 			int coreRadius = Support.getRandomBetween(random, this.minCoreRadius, this.maxCoreRadius);
 			float fillAmount = Support.getRandomBetween(random, this.minFillAmount, this.maxFillAmount);
 			boolean holeInBottom = random.nextFloat() < this.holeInBottomChance;
 			BlockState fluidBlockState = this.fluid.getDefaultState().getBlockState();
-			return new FluidCoreSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, fluidBlockState, shellBlock.get(random), shellRadius, fillAmount, holeInBottom, coreBlock.get(random), coreRadius);
+			return new FluidCoreSpheroid(this, radius, selectDecorators(random), selectSpawns(random), fluidBlockState, shellBlock.get(random), shellRadius, fillAmount, holeInBottom, coreBlock.get(random), coreRadius);
 		}
 		
 	}
@@ -108,10 +110,18 @@ public class FluidCoreSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the hole in the bottom is a single column and gets left out
+		float liquidRadius = this.radius - this.shellRadius;
+		int maxLiquidY = (int) Math.floor(this.getPosition().getY() + (this.fillAmount * liquidRadius * 2 - liquidRadius));
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, liquidRadius, CAVE_AIR, states, bottomY);
+		sampleBand(x, z, liquidRadius, this.fluidBlock, states, bottomY, maxLiquidY);
+		sampleBand(x, z, this.coreRadius, COLUMN_SAMPLE_SOLID, states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int x = this.getPosition().getX();
 		int y = this.getPosition().getY();
 		int z = this.getPosition().getZ();
@@ -119,34 +129,18 @@ public class FluidCoreSpheroid extends Spheroid {
 		float liquidRadius = this.radius - this.shellRadius;
 		float maxLiquidY = y + (this.fillAmount * liquidRadius * 2 - liquidRadius);
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (this.holeInBottom && (x - x2) == 0 && (z - z2) == 0 && (y - y2 + 1) >= liquidRadius) {
-						chunk.setBlockState(new BlockPos(currBlockPos), this.fluidBlock, false);
-						chunk.markBlockForPostProcessing(currBlockPos); // making it drop down after generation
-					} else if (d <= this.coreRadius) {
-						chunk.setBlockState(currBlockPos, this.coreBlock, false);
-					} else if (d <= liquidRadius) {
-						if (y2 <= maxLiquidY) {
-							chunk.setBlockState(currBlockPos, this.fluidBlock, false);
-						} else {
-							chunk.setBlockState(currBlockPos, CAVE_AIR, false);
-						}
-					} else {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
-					}
-				}
+		new SpheroidShape()
+				.band(this.coreRadius, this.coreBlock)
+				.positionalBand(liquidRadius, (x2, y2, z2) -> y2 <= maxLiquidY ? this.fluidBlock : CAVE_AIR)
+				.band(this.radius, this.shellBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+		
+		if (this.holeInBottom && Support.isBlockPosInChunkPos(chunk.getPos(), this.getPosition())) {
+			// the hole in the bottom of the center column, making the fluid drop down after generation
+			int halfHeight = Support.getColumnHalfHeight(0, this.radius);
+			for (int y2 = y - halfHeight; y2 <= y + halfHeight && y - y2 + 1 >= liquidRadius; y2++) {
+				writer.setBlockState(x, y2, z, this.fluidBlock);
+				chunk.markBlockForPostProcessing(new BlockPos(x, y2, z));
 			}
 		}
 	}
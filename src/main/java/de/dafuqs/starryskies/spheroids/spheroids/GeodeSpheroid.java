@@ -2,15 +2,16 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -25,10 +26,10 @@ public class GeodeSpheroid extends Spheroid {
 	private final BlockState middleBlockSate;
 	private final BlockState outerBlockState;
 	
-	public GeodeSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public GeodeSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                     BlockState innerBlockState, BlockState innerSpecklesBlockState, float speckleChance, BlockState middleBlockSate, BlockState outerBlockState) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		
 		this.innerBlockState = innerBlockState;
 		this.innerSpecklesBlockState = innerSpecklesBlockState;
@@ -57,8 +58,8 @@ public class GeodeSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public GeodeSpheroid generate(ChunkRandom random) {
-			return new GeodeSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, innerBlockState, innerSpecklesBlockState, speckleChance, middleBlockSate, outerBlockState);
+		public GeodeSpheroid generate(ChunkRandom random, float radius) {
+			return new GeodeSpheroid(this, radius, selectDecorators(random), selectSpawns(random), innerBlockState, innerSpecklesBlockState, speckleChance, middleBlockSate, outerBlockState);
 		}
 		
 	}
@@ -77,43 +78,21 @@ public class GeodeSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d < this.radius - 4) {
-						// nothing
-					} else if (d < this.radius - 3) {
-						if (random.nextFloat() < speckleChance) {
-							chunk.setBlockState(currBlockPos, innerSpecklesBlockState, false);
-						} else {
-							chunk.setBlockState(currBlockPos, innerBlockState, false);
-						}
-					} else if (d < this.radius - 2) {
-						chunk.setBlockState(currBlockPos, middleBlockSate, false);
-					} else if (d < this.radius - 1) {
-						chunk.setBlockState(currBlockPos, outerBlockState, false);
-					}
-				}
-			}
-		}
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// same bands as generate()
+		sampleBand(x, z, (float) Math.ceil(this.radius - 1) - 1, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, (float) Math.ceil(this.radius - 4) - 1, Blocks.AIR.getDefaultState(), states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		// the bands are "d < radius - n" here. For rounded distances that is d <= ceil(radius - n) - 1
+		new SpheroidShape()
+				.band((float) Math.ceil(this.radius - 4) - 1, null)
+				.randomBand((float) Math.ceil(this.radius - 3) - 1, random -> random.nextFloat() < speckleChance ? innerSpecklesBlockState : innerBlockState)
+				.band((float) Math.ceil(this.radius - 2) - 1, middleBlockSate)
+				.band((float) Math.ceil(this.radius - 1) - 1, outerBlockState)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, getChunkRandom(chunk.getPos()));
 	}
 	
 }
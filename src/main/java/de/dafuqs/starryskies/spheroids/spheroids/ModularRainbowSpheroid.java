@@ -3,15 +3,15 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -25,10 +25,10 @@ public class ModularRainbowSpheroid extends Spheroid {
 	private final List<BlockState> topBlocks;
 	private final List<BlockState> bottomBlocks;
 	
-	public ModularRainbowSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public ModularRainbowSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                              List<BlockState> rainbowBlocks, List<BlockState> topBlocks, List<BlockState> bottomBlocks) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.rainbowBlocks = rainbowBlocks;
 		this.topBlocks = topBlocks;
 		this.bottomBlocks = bottomBlocks;
@@ -59,8 +59,13 @@ public class ModularRainbowSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public ModularRainbowSpheroid generate(ChunkRandom random) {
-			return new ModularRainbowSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, rainbowBlocks, topBlocks, bottomBlocks);
+		public boolean isSolidThroughout() {
+			return areSolid(this.rainbowBlocks) && areSolid(this.topBlocks) && areSolid(this.bottomBlocks);
+		}
+		
+		@Override
+		public ModularRainbowSpheroid generate(ChunkRandom random, float radius) {
+			return new ModularRainbowSpheroid(this, radius, selectDecorators(random), selectSpawns(random), rainbowBlocks, topBlocks, bottomBlocks);
 		}
 		
 	}
@@ -77,48 +82,26 @@ public class ModularRainbowSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					int rainbowBlockMod = Math.abs(x2) + Math.abs(y2) + Math.abs(z2);
-					if (d > this.radius - 1) {
-						if (bottomBlocks != null && isBottomBlock(d, x2, y2, z2)) {
-							int currentBlockID = rainbowBlockMod % this.bottomBlocks.size();
-							chunk.setBlockState(currBlockPos, this.bottomBlocks.get(currentBlockID), false);
-						} else if (topBlocks != null && isTopBlock(d, x2, y2, z2)) {
-							int currentBlockID = rainbowBlockMod % this.topBlocks.size();
-							chunk.setBlockState(currBlockPos, this.topBlocks.get(currentBlockID), false);
-						} else {
-							int currentBlockID = rainbowBlockMod % this.rainbowBlocks.size();
-							BlockState currentBlockState = this.rainbowBlocks.get(currentBlockID);
-							chunk.setBlockState(currBlockPos, currentBlockState, false);
-						}
-					} else {
-						int currentBlockID = rainbowBlockMod % this.rainbowBlocks.size();
-						BlockState currentBlockState = this.rainbowBlocks.get(currentBlockID);
-						chunk.setBlockState(currBlockPos, currentBlockState, false);
-					}
-				}
-			}
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.rainbowBlocks) && areSolid(this.topBlocks) && areSolid(this.bottomBlocks) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		SpheroidShape shape = new SpheroidShape().positionalBand(this.radius, (x, y, z) -> getBlockState(this.rainbowBlocks, x, y, z));
+		if (this.bottomBlocks != null) {
+			shape.bottom((x, y, z) -> getBlockState(this.bottomBlocks, x, y, z));
+		}
+		if (this.topBlocks != null) {
+			shape.top((x, y, z) -> getBlockState(this.topBlocks, x, y, z));
 		}
+		
+		shape.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+	}
+	
+	private static BlockState getBlockState(List<BlockState> blockStates, int x, int y, int z) {
+		int rainbowBlockMod = Math.abs(x) + Math.abs(y) + Math.abs(z);
+		return blockStates.get(rainbowBlockMod % blockStates.size());
 	}
 	
 }
\ No newline at end of file
@@ -2,15 +2,15 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -23,10 +23,10 @@ public class ModularSpheroid extends Spheroid {
 	private final BlockState topBlock;
 	private final BlockState bottomBlock;
 	
-	public ModularSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public ModularSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                       BlockState mainBlock, BlockState topBlock, BlockState bottomBlock) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.mainBlock = mainBlock;
 		this.topBlock = topBlock;
 		this.bottomBlock = bottomBlock;
@@ -52,8 +52,13 @@ public class ModularSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public ModularSpheroid generate(ChunkRandom random) {
-			return new ModularSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, mainBlock, topBlock, bottomBlock);
+		public boolean isSolidThroughout() {
+			return areSolid(this.mainBlock, this.topBlock, this.bottomBlock);
+		}
+		
+		@Override
+		public ModularSpheroid generate(ChunkRandom random, float radius) {
+			return new ModularSpheroid(this, radius, selectDecorators(random), selectSpawns(random), mainBlock, topBlock, bottomBlock);
 		}
 		
 	}
@@ -74,37 +79,17 @@ public class ModularSpheroid extends Spheroid {
 		return s;
 	}
 	
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (this.bottomBlock != null && isBottomBlock(d, x2, y2, z2)) {
-						chunk.setBlockState(currBlockPos, this.bottomBlock, false);
-					} else if (this.topBlock != null && isTopBlock(d, x2, y2, z2)) {
-						chunk.setBlockState(currBlockPos, this.topBlock, false);
-					} else {
-						chunk.setBlockState(currBlockPos, this.mainBlock, false);
-					}
-				}
-			}
-		}
+	@Override
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.mainBlock, this.topBlock, this.bottomBlock) ? -1 : Float.NaN;
+	}
+	
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.band(this.radius, this.mainBlock)
+				.bottom(this.bottomBlock)
+				.top(this.topBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
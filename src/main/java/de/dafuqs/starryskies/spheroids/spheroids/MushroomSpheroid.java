@@ -2,8 +2,9 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
@@ -11,7 +12,6 @@ import net.minecraft.state.property.Properties;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -24,10 +24,10 @@ public class MushroomSpheroid extends Spheroid {
 	BlockState mushroomBlock;
 	float shellRadius;
 	
-	public MushroomSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public MushroomSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                        BlockState stemBlock, BlockState mushroomBlock, float shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		
 		this.stemBlock = stemBlock;
 		this.mushroomBlock = mushroomBlock;
@@ -52,8 +52,13 @@ public class MushroomSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public MushroomSpheroid generate(ChunkRandom random) {
-			return new MushroomSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, stemBlock, mushroomBlock, randomBetween(random, minShellRadius, maxShellRadius));
+		public boolean isSolidThroughout() {
+			return areSolid(this.stemBlock, this.mushroomBlock);
+		}
+		
+		@Override
+		public MushroomSpheroid generate(ChunkRandom random, float radius) {
+			return new MushroomSpheroid(this, radius, selectDecorators(random), selectSpawns(random), stemBlock, mushroomBlock, randomBetween(random, minShellRadius, maxShellRadius));
 		}
 		
 	}
@@ -68,43 +73,22 @@ public class MushroomSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.stemBlock, this.mushroomBlock) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		// see: HugeRedMushroomFeature
 		BlockState placementBlockstateInner = this.mushroomBlock.with(Properties.UP, false).with(Properties.NORTH, false).with(Properties.EAST, false).with(Properties.SOUTH, false).with(Properties.WEST, false).with(Properties.DOWN, false);
+		// not perfectly correct, but eh
+		BlockState placementBlockstateOuter = this.mushroomBlock.with(Properties.UP, true).with(Properties.NORTH, true).with(Properties.EAST, true).with(Properties.SOUTH, true).with(Properties.WEST, true).with(Properties.DOWN, true);
 		
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					long rounded = Math.round(d);
-					if (rounded <= (this.radius - this.shellRadius)) {
-						chunk.setBlockState(currBlockPos, this.stemBlock, false);
-					} else if (d <= this.radius - 0.5) {
-						chunk.setBlockState(currBlockPos, placementBlockstateInner, false);
-					} else {
-						// not perfectly correct, but eh
-						BlockState placementBlockstateOuter = this.mushroomBlock.with(Properties.UP, true).with(Properties.NORTH, true).with(Properties.EAST, true).with(Properties.SOUTH, true).with(Properties.WEST, true).with(Properties.DOWN, true);
-						chunk.setBlockState(currBlockPos, placementBlockstateOuter, false);
-					}
-				}
-			}
-		}
+		new SpheroidShape()
+				.band(this.radius - this.shellRadius, this.stemBlock)
+				.band(this.radius - 0.5F, placementBlockstateInner)
+				.band(this.radius, placementBlockstateOuter)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
@@ -3,7 +3,11 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.NetherWartBlock;
@@ -20,13 +24,13 @@ import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.WorldAccess;
 import net.minecraft.world.chunk.Chunk;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class NetherFortressSpheroid extends Spheroid {
 	
 	private final int shellRadius;
-	private final ArrayList<BlockPos> interiorDecoratorPositions = new ArrayList<>();
+	private final List<BlockPos> interiorDecoratorPositions = new CopyOnWriteArrayList<>();
 	
 	private final Identifier NETHER_BRIDGE_CHEST = LootTables.NETHER_BRIDGE_CHEST;
 	
@@ -38,10 +42,10 @@ public class NetherFortressSpheroid extends Spheroid {
 	private final BlockState LAVA = Blocks.LAVA.getDefaultState();
 	
 	
-	public NetherFortressSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public NetherFortressSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                              int shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.shellRadius = shellRadius;
 	}
 	
@@ -59,9 +63,9 @@ public class NetherFortressSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public NetherFortressSpheroid generate(ChunkRandom random) {
+		public NetherFortressSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, minShellRadius, maxShellRadius);
-			return new NetherFortressSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, shellRadius);
+			return new NetherFortressSpheroid(this, radius, selectDecorators(random), selectSpawns(random), shellRadius);
 		}
 		
 	}
@@ -76,39 +80,20 @@ public class NetherFortressSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// only the part inside the shell distance gets generated
+		sampleBand(x, z, this.radius - this.shellRadius, COLUMN_SAMPLE_SOLID, states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		float shellDistance = this.radius - this.shellRadius;
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= shellDistance) {
-						chunk.setBlockState(currBlockPos, NETHER_BRICKS, false);
-					}
-					if (d < this.getRadius() - 10 && (y2 % 10 == (this.position.getY() + 9) % 10 && x2 % 10 == (this.position.getX()) % 10 && z2 % 10 == (this.position.getZ()) % 10)) {
-						interiorDecoratorPositions.add(currBlockPos);
-					}
-				}
-			}
-		}
+		new SpheroidShape()
+				.band(shellDistance, NETHER_BRICKS)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+		
+		interiorDecoratorPositions.addAll(getRoomPositions(chunk.getPos(), this.getRadius() - 10));
 	}
 	
 	/**
@@ -121,74 +106,77 @@ public class NetherFortressSpheroid extends Spheroid {
 	@Override
 	public void decorate(StructureWorldAccess world, BlockPos origin, Random random) {
 		ChunkPos originChunkPos = new ChunkPos(origin);
+		DecorationWriteBuffer buffer = new DecorationWriteBuffer(new RegionClippingWriter(world));
 		for (BlockPos interiorDecoratorPosition : interiorDecoratorPositions) {
 			if (Support.isBlockPosInChunkPos(originChunkPos, interiorDecoratorPosition)) {
 				int randomStructure = random.nextInt(7);
 				switch (randomStructure) {
-					case 0 -> placeBlazeSpawnerRoom(world, interiorDecoratorPosition);
-					case 1 -> placeWitherSkeletonRoom(world, interiorDecoratorPosition);
-					case 2 -> placeNetherWartRoom(world, interiorDecoratorPosition);
-					case 3 -> placeSolid(world, interiorDecoratorPosition);
-					case 4 -> placeEmpty(world, interiorDecoratorPosition);
-					case 5 -> placeLava(world, interiorDecoratorPosition);
-					default -> placeChestRoom(world, interiorDecoratorPosition);
+					case 0 -> placeBlazeSpawnerRoom(buffer, interiorDecoratorPosition);
+					case 1 -> placeWitherSkeletonRoom(buffer, interiorDecoratorPosition);
+					case 2 -> placeNetherWartRoom(buffer, interiorDecoratorPosition, random);
+					case 3 -> placeSolid(buffer, interiorDecoratorPosition);
+					case 4 -> placeEmpty(buffer, interiorDecoratorPosition);
+					case 5 -> placeLava(buffer, interiorDecoratorPosition);
+					default -> placeChestRoom(world, buffer, interiorDecoratorPosition, random);
 				}
 			}
 		}
+		buffer.flush();
 	}
 	
-	private void placeSolid(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeSolid(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, NETHER_BRICKS, 3);
+					buffer.setBlockState(destinationBlockPos, NETHER_BRICKS);
 				}
 			}
 		}
 	}
 	
-	private void placeEmpty(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeEmpty(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 	}
 	
-	private void placeLava(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeLava(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, LAVA, 3);
+					buffer.setBlockState(destinationBlockPos, LAVA);
 				}
 			}
 		}
 	}
 	
-	private void placeChestRoom(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeChestRoom(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
 		
+		buffer.flush();
 		placeCenterChestWithLootTable(worldAccess.getChunk(blockPos), blockPos, NETHER_BRIDGE_CHEST, random, false);
 	}
 	
-	private void placeBlazeSpawnerRoom(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeBlazeSpawnerRoom(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
@@ -198,24 +186,24 @@ public class NetherFortressSpheroid extends Spheroid {
 			for (int y2 = -1; y2 < 2; y2++) {
 				for (int z2 = -1; z2 < 2; z2++) {
 					BlockPos destinationBlockPos = spawnerPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, NETHER_BRICK_FENCE, 3);
+					buffer.setBlockState(destinationBlockPos, NETHER_BRICK_FENCE);
 				}
 			}
 		}
 		
-		worldAccess.setBlockState(spawnerPos.up(2), NETHER_BRICK_FENCE, 3);
-		worldAccess.setBlockState(spawnerPos.up(3), NETHER_BRICK_FENCE, 3);
-		worldAccess.setBlockState(spawnerPos.up(4), NETHER_BRICK_FENCE, 3);
+		buffer.setBlockState(spawnerPos.up(2), NETHER_BRICK_FENCE);
+		buffer.setBlockState(spawnerPos.up(3), NETHER_BRICK_FENCE);
+		buffer.setBlockState(spawnerPos.up(4), NETHER_BRICK_FENCE);
 		
-		placeSpawner(worldAccess, spawnerPos, EntityType.BLAZE);
+		placeSpawner(buffer, spawnerPos, EntityType.BLAZE);
 	}
 	
-	private void placeWitherSkeletonRoom(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeWitherSkeletonRoom(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
@@ -225,24 +213,24 @@ public class NetherFortressSpheroid extends Spheroid {
 			for (int y2 = -1; y2 < 2; y2++) {
 				for (int z2 = -1; z2 < 2; z2++) {
 					BlockPos destinationBlockPos = spawnerPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, NETHER_BRICK_FENCE, 3);
+					buffer.setBlockState(destinationBlockPos, NETHER_BRICK_FENCE);
 				}
 			}
 		}
 		
-		worldAccess.setBlockState(spawnerPos.up(2), NETHER_BRICK_FENCE, 3);
-		worldAccess.setBlockState(spawnerPos.up(3), NETHER_BRICK_FENCE, 3);
-		worldAccess.setBlockState(spawnerPos.up(4), NETHER_BRICK_FENCE, 3);
+		buffer.setBlockState(spawnerPos.up(2), NETHER_BRICK_FENCE);
+		buffer.setBlockState(spawnerPos.up(3), NETHER_BRICK_FENCE);
+		buffer.setBlockState(spawnerPos.up(4), NETHER_BRICK_FENCE);
 		
-		placeSpawner(worldAccess, spawnerPos, EntityType.WITHER_SKELETON);
+		placeSpawner(buffer, spawnerPos, EntityType.WITHER_SKELETON);
 	}
 	
-	private void placeNetherWartRoom(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeNetherWartRoom(DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, AIR, 3);
+					buffer.setBlockState(destinationBlockPos, AIR);
 				}
 			}
 		}
@@ -251,11 +239,11 @@ public class NetherFortressSpheroid extends Spheroid {
 			for (int z2 = -4; z2 < 5; z2++) {
 				BlockPos destinationBlockPos = blockPos.add(x2, 0, z2);
 				if (Math.abs(x2) < 3 && Math.abs(z2) < 3) {
-					worldAccess.setBlockState(destinationBlockPos, SOUL_SAND, 3);
+					buffer.setBlockState(destinationBlockPos, SOUL_SAND);
 					int randomAge = random.nextInt(3);
-					worldAccess.setBlockState(destinationBlockPos.up(), NETHER_WART.with(NetherWartBlock.AGE, randomAge), 3);
+					buffer.setBlockState(destinationBlockPos.up(), NETHER_WART.with(NetherWartBlock.AGE, randomAge));
 				} else {
-					worldAccess.setBlockState(destinationBlockPos, NETHER_BRICKS, 3);
+					buffer.setBlockState(destinationBlockPos, NETHER_BRICKS);
 				}
 			}
 		}
@@ -4,7 +4,9 @@ import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.StarrySkies;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.entity.EntityType;
@@ -20,8 +22,8 @@ import net.minecraft.util.math.random.*;
 import net.minecraft.world.*;
 import net.minecraft.world.chunk.Chunk;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.apache.logging.log4j.Level.WARN;
 
@@ -37,12 +39,12 @@ public class OceanMonumentSpheroid extends Spheroid {
 	private final int coreRadius;
 	private final int shellRadius;
 	
-	private final ArrayList<BlockPos> guardianPositions = new ArrayList<>();
+	private final List<BlockPos> guardianPositions = new CopyOnWriteArrayList<>();
 	
-	public OceanMonumentSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public OceanMonumentSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                             int coreRadius, int shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.coreRadius = coreRadius;
 		this.shellRadius = shellRadius;
 	}
@@ -65,10 +67,10 @@ public class OceanMonumentSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public OceanMonumentSpheroid generate(ChunkRandom random) {
+		public OceanMonumentSpheroid generate(ChunkRandom random, float radius) {
 			int treasureRadius = Support.getRandomBetween(random, this.minCoreRadius, this.maxCoreRadius);
 			int shellRadius = Support.getRandomBetween(random, this.minShellRadius, this.maxShellRadius);
-			return new OceanMonumentSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, treasureRadius, shellRadius);
+			return new OceanMonumentSpheroid(this, radius, selectDecorators(random), selectSpawns(random), treasureRadius, shellRadius);
 		}
 		
 	}
@@ -83,7 +85,17 @@ public class OceanMonumentSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the walls between the rooms and the openings of the treasure room are left out
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, this.radius - this.shellRadius, this.water, states, bottomY);
+		sampleBand(x, z, this.coreRadius + 3, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, this.coreRadius + 2, this.water, states, bottomY);
+		sampleBand(x, z, this.coreRadius, COLUMN_SAMPLE_SOLID, states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int chunkX = chunk.getPos().x;
 		int chunkZ = chunk.getPos().z;
 		
@@ -93,47 +105,35 @@ public class OceanMonumentSpheroid extends Spheroid {
 		
 		float shellDistance = this.radius - this.shellRadius;
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
+		new SpheroidShape()
+				.band(this.coreRadius, this.treasure)
+				.band(this.coreRadius + 2, water)
+				.positionalBand(this.coreRadius + 3, (x2, y2, z2) -> Math.abs(x2 - x) < 2 || Math.abs(z2 - z) < 2 ? water : dark_prismarine)
+				.positionalBand(shellDistance, (x2, y2, z2) -> {
+					if (y2 % 10 == 0 || x2 % 10 == 0 || z2 % 10 == 0) {
+						if ((y2 - y) % 6 == 0 && ((x2 - x) % 4 == 2 || (z2 - z) % 4 == 0)) {
+							return this.sea_lantern;
+						} else {
+							return this.prismarine_bricks;
+						}
+					} else {
+						return this.water;
+					}
+				})
+				.positionalBand(this.radius, (x2, y2, z2) -> y2 % 2 == 0 ? this.prismarine : this.prismarine_bricks)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+		
+		// guardians spawn in the water of the rooms
 		int ceiledRadius = (int) Math.ceil(this.radius);
 		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
 		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
 		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
 			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
 				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= this.coreRadius) {
-						chunk.setBlockState(currBlockPos, this.treasure, false);
-					} else if (d < coreRadius + 3) {
-						chunk.setBlockState(currBlockPos, water, false);
-					} else if (d == coreRadius + 3) {
-						if (Math.abs(x2 - x) < 2 || Math.abs(z2 - z) < 2) {
-							chunk.setBlockState(currBlockPos, water, false);
-						} else {
-							chunk.setBlockState(currBlockPos, dark_prismarine, false);
-						}
-					} else if (d <= shellDistance) {
-						if (y2 % 10 == 0 || x2 % 10 == 0 || z2 % 10 == 0) {
-							if ((y2 - y) % 6 == 0 && ((x2 - x) % 4 == 2 || (z2 - z) % 4 == 0)) {
-								chunk.setBlockState(currBlockPos, this.sea_lantern, false);
-							} else {
-								chunk.setBlockState(currBlockPos, this.prismarine_bricks, false);
-							}
-						} else {
-							if (y2 % 10 == 5 && x2 % 10 == 5 && z2 % 10 == 5) {
-								guardianPositions.add(currBlockPos);
-							}
-							chunk.setBlockState(currBlockPos, this.water, false);
-						}
-					} else {
-						if (y2 % 2 == 0) {
-							chunk.setBlockState(currBlockPos, this.prismarine, false);
-						} else {
-							chunk.setBlockState(currBlockPos, this.prismarine_bricks, false);
+					if (y2 % 10 == 5 && x2 % 10 == 5 && z2 % 10 == 5) {
+						long d = Support.getRoundedDistance(x2 - x, y2 - y, z2 - z);
+						if (d > coreRadius + 3 && d <= shellDistance && d <= this.radius) {
+							guardianPositions.add(new BlockPos(x2, y2, z2));
 						}
 					}
 				}
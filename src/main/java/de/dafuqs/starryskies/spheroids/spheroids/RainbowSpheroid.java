@@ -3,15 +3,15 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -23,10 +23,10 @@ public class RainbowSpheroid extends Spheroid {
 	
 	private final List<BlockState> rainbowBlocks;
 	
-	public RainbowSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public RainbowSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                       List<BlockState> rainbowBlocks) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.radius = radius;
 		this.rainbowBlocks = rainbowBlocks;
 	}
@@ -46,8 +46,13 @@ public class RainbowSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public RainbowSpheroid generate(ChunkRandom random) {
-			return new RainbowSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, rainbowBlocks);
+		public boolean isSolidThroughout() {
+			return areSolid(this.rainbowBlocks);
+		}
+		
+		@Override
+		public RainbowSpheroid generate(ChunkRandom random, float radius) {
+			return new RainbowSpheroid(this, radius, selectDecorators(random), selectSpawns(random), rainbowBlocks);
 		}
 		
 	}
@@ -66,33 +71,15 @@ public class RainbowSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					int currentBlockID = (Math.abs(x2) + Math.abs(y2) + Math.abs(z2)) % this.getRainbowBlockCount();
-					BlockState currentBlockState = this.rainbowBlocks.get(currentBlockID);
-					chunk.setBlockState(currBlockPos, currentBlockState, false);
-				}
-			}
-		}
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.rainbowBlocks) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.positionalBand(this.radius, (x, y, z) -> this.rainbowBlocks.get((Math.abs(x) + Math.abs(y) + Math.abs(z)) % this.getRainbowBlockCount()))
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
\ No newline at end of file
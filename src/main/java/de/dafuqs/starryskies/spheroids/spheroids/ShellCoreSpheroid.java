@@ -2,16 +2,16 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -26,10 +26,10 @@ public class ShellCoreSpheroid extends Spheroid {
 	private final float coreRadius;
 	private final float shellRadius;
 	
-	public ShellCoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public ShellCoreSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                         BlockState coreBlock, BlockState mainBlock, BlockState shellBlock, float coreRadius, float shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.coreBlock = coreBlock;
 		this.mainBlock = mainBlock;
 		this.shellBlock = shellBlock;
@@ -66,8 +66,8 @@ public class ShellCoreSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public ShellCoreSpheroid generate(ChunkRandom random) {
-			return new ShellCoreSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, coreBlock, mainBlock, shellBlock.get(random), randomBetween(random, minCoreRadius, maxCoreRadius), randomBetween(random, minShellRadius, maxShellRadius));
+		public ShellCoreSpheroid generate(ChunkRandom random, float radius) {
+			return new ShellCoreSpheroid(this, radius, selectDecorators(random), selectSpawns(random), coreBlock, mainBlock, shellBlock.get(random), randomBetween(random, minCoreRadius, maxCoreRadius), randomBetween(random, minShellRadius, maxShellRadius));
 		}
 		
 	}
@@ -84,37 +84,17 @@ public class ShellCoreSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= this.coreRadius) {
-						chunk.setBlockState(currBlockPos, this.coreBlock, false);
-					} else if (d <= this.radius - this.shellRadius) {
-						chunk.setBlockState(currBlockPos, this.mainBlock, false);
-					} else {
-						chunk.setBlockState(currBlockPos, this.shellBlock, false);
-					}
-				}
-			}
-		}
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.coreBlock, this.mainBlock, this.shellBlock) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.band(this.coreRadius, this.coreBlock)
+				.band(this.radius - this.shellRadius, this.mainBlock)
+				.band(this.radius, this.shellBlock)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
@@ -2,16 +2,16 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.spheroids.BlockStateSupplier;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -27,10 +27,10 @@ public class ShellSpheroid extends Spheroid {
 	protected float shellRadius;
 	private final LinkedHashMap<BlockState, Float> shellSpeckleBlockStates;
 	
-	public ShellSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public ShellSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                     BlockState innerBlock, BlockState shellBlock, float shellRadius, LinkedHashMap<BlockState, Float> shellSpeckleBlockStates) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.radius = radius;
 		this.innerBlock = innerBlock;
 		this.shellBlock = shellBlock;
@@ -57,8 +57,8 @@ public class ShellSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public ShellSpheroid generate(ChunkRandom random) {
-			return new ShellSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, innerBlock, shellBlock.get(random), randomBetween(random, minShellRadius, maxShellRadius), shellSpeckleBlockStates);
+		public ShellSpheroid generate(ChunkRandom random, float radius) {
+			return new ShellSpheroid(this, radius, selectDecorators(random), selectSpawns(random), innerBlock, shellBlock.get(random), randomBetween(random, minShellRadius, maxShellRadius), shellSpeckleBlockStates);
 		}
 		
 	}
@@ -73,49 +73,27 @@ public class ShellSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		boolean hasSpeckles = hasSpeckles();
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= (this.radius - this.shellRadius)) {
-						chunk.setBlockState(currBlockPos, this.innerBlock, false);
-					} else {
-						if (hasSpeckles) {
-							BlockState finalBlockState = shellBlock;
-							for (Map.Entry<BlockState, Float> shellSpeckleBlockState : shellSpeckleBlockStates.entrySet()) {
-								if (random.nextFloat() < shellSpeckleBlockState.getValue()) {
-									finalBlockState = shellSpeckleBlockState.getKey();
-									break;
-								}
-							}
-							chunk.setBlockState(currBlockPos, finalBlockState, false);
-						} else {
-							chunk.setBlockState(currBlockPos, this.shellBlock, false);
-						}
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.innerBlock, this.shellBlock) && areSolid(this.shellSpeckleBlockStates.keySet()) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		SpheroidShape shape = new SpheroidShape().band(this.radius - this.shellRadius, this.innerBlock);
+		if (hasSpeckles()) {
+			shape.randomBand(this.radius, random -> {
+				for (Map.Entry<BlockState, Float> shellSpeckleBlockState : shellSpeckleBlockStates.entrySet()) {
+					if (random.nextFloat() < shellSpeckleBlockState.getValue()) {
+						return shellSpeckleBlockState.getKey();
 					}
 				}
-			}
+				return shellBlock;
+			});
+		} else {
+			shape.band(this.radius, this.shellBlock);
 		}
+		
+		shape.generate(writer, chunk.getPos(), this.getPosition(), this.radius, getChunkRandom(chunk.getPos()));
 	}
 	
 	private boolean hasSpeckles() {
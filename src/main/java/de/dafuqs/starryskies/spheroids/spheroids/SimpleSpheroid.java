@@ -2,15 +2,15 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -21,10 +21,10 @@ public class SimpleSpheroid extends Spheroid {
 	
 	private final BlockState blockState;
 	
-	public SimpleSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public SimpleSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                      BlockState blockState) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.blockState = blockState;
 	}
 	
@@ -40,8 +40,13 @@ public class SimpleSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public SimpleSpheroid generate(ChunkRandom random) {
-			return new SimpleSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, blockState);
+		public boolean isSolidThroughout() {
+			return areSolid(this.blockState);
+		}
+		
+		@Override
+		public SimpleSpheroid generate(ChunkRandom random, float radius) {
+			return new SimpleSpheroid(this, radius, selectDecorators(random), selectSpawns(random), blockState);
 		}
 		
 	}
@@ -54,31 +59,15 @@ public class SimpleSpheroid extends Spheroid {
 				"\nBlock: " + this.blockState.toString();
 	}
 	
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int x = this.getPosition().getX();
-		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
-		
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					chunk.setBlockState(currBlockPos, this.blockState, false);
-				}
-			}
-		}
+	@Override
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.blockState) ? -1 : Float.NaN;
+	}
+	
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
+		new SpheroidShape()
+				.band(this.radius, this.blockState)
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
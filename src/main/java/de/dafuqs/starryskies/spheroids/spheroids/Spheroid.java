@@ -7,14 +7,17 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.StarrySkies;
 import de.dafuqs.starryskies.Support;
 import de.dafuqs.starryskies.data_loaders.SpheroidDecoratorLoader;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
 import de.dafuqs.starryskies.spheroids.SpheroidEntitySpawnDefinition;
+import de.dafuqs.starryskies.spheroids.SpheroidSurface;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.ChestBlock;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.ChestBlockEntity;
-import net.minecraft.block.entity.LootableContainerBlockEntity;
 import net.minecraft.block.entity.MobSpawnerBlockEntity;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
@@ -26,6 +29,7 @@ import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.random.CheckedRandom;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.math.random.Random;
 import net.minecraft.util.registry.Registry;
@@ -33,38 +37,115 @@ import net.minecraft.world.*;
 import net.minecraft.world.chunk.Chunk;
 import org.apache.logging.log4j.Level;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import static org.apache.logging.log4j.Level.WARN;
 
 public abstract class Spheroid implements Serializable {
 	
+	/**
+	 * The block standing in for all solid blocks of spheroids in column samples, see sampleColumn()
+	 */
+	public static final BlockState COLUMN_SAMPLE_SOLID = Blocks.STONE.getDefaultState();
+	
 	protected Spheroid.Template template;
 	protected float radius;
 	protected List<SpheroidDecorator> decorators;
 	protected List<Pair<EntityType, Integer>> spawns;
 	
 	protected BlockPos position;
-	protected ChunkRandom random;
+	protected long seed;
+	
+	// the surfaces of this spheroid in chunks that are generated, but not decorated yet
+	private final transient Map<Long, SpheroidSurface> surfaces = new ConcurrentHashMap<>();
 	
-	public Spheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random) {
+	public Spheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns) {
 		this.template = template;
 		this.radius = radius;
 		this.decorators = decorators;
 		this.spawns = spawns;
-		this.random = random;
 	}
 	
 	public void setPosition(BlockPos position) {
 		this.position = position;
 	}
 	
-	public abstract void generate(Chunk chunk);
+	/**
+	 * The state of the system random right before this spheroid got generated from its template
+	 * Generating from the same template with a random restored from it results in the exact same spheroid again
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Creates a new random for generating the part of this spheroid in the given chunk
+	 * It only depends on the seed of this spheroid (that already derives from the world seed and its system)
+	 * and the chunk position, so neighboring chunks of the same spheroid can be generated on different threads at once
+	 */
+	protected @NotNull ChunkRandom getChunkRandom(@NotNull ChunkPos chunkPos) {
+		ChunkRandom chunkRandom = new ChunkRandom(new CheckedRandom(0L));
+		chunkRandom.setCarverSeed(this.seed, chunkPos.x, chunkPos.z);
+		return chunkRandom;
+	}
+	
+	/**
+	 * Generates the part of this spheroid that is inside the chunk
+	 */
+	public void generate(@NotNull Chunk chunk) {
+		ChunkSectionWriter writer = new ChunkSectionWriter(chunk);
+		generate(writer, chunk);
+		writer.flush();
+	}
+	
+	/**
+	 * Generates the part of this spheroid that is inside the chunk, writing its blocks using the writer.
+	 * The caller flushes the writer afterwards.
+	 * Spheroids of the same chunk that do not share any chunk sections may be generated on multiple threads at once,
+	 * so block entities have to be set using setBlockEntity()
+	 */
+	public abstract void generate(@NotNull ChunkSectionWriter writer, @NotNull Chunk chunk);
+	
+	/**
+	 * Finds the surface of this spheroid in the chunk right after it got generated, for its decorators to use
+	 * The surface is forgotten again once the chunk is decorated
+	 */
+	public void rememberSurface(@NotNull ChunkSectionWriter writer, @NotNull ChunkPos chunkPos) {
+		// no need to search for surfaces that can be calculated
+		if (!this.decorators.isEmpty() && !hasAnalyticSurface()) {
+			surfaces.put(chunkPos.toLong(), SpheroidSurface.scan(writer, chunkPos, this));
+		}
+	}
+	
+	/**
+	 * @return the surface of this spheroid in the chunk or null, if it was not generated since this spheroid was created
+	 */
+	public @Nullable SpheroidSurface getSurface(@NotNull ChunkPos chunkPos) {
+		return surfaces.get(chunkPos.toLong());
+	}
+	
+	/**
+	 * Same as chunk.setBlockEntity(), but safe to use while other spheroids are generated in the same chunk
+	 */
+	protected void setBlockEntity(@NotNull Chunk chunk, @NotNull BlockEntity blockEntity) {
+		synchronized (chunk) {
+			chunk.setBlockEntity(blockEntity);
+		}
+	}
 	
 	public BlockPos getPosition() {
 		return position;
@@ -74,6 +155,10 @@ public abstract class Spheroid implements Serializable {
 		return Math.round(radius);
 	}
 	
+	public float getExactRadius() {
+		return radius;
+	}
+	
 	public abstract String getDescription();
 	
 	public boolean isInChunk(@NotNull ChunkPos chunkPos) {
@@ -85,6 +170,183 @@ public abstract class Spheroid implements Serializable {
 		return (chunkPos.getStartX() >= xMin && chunkPos.getEndX() <= xMax) && (chunkPos.getStartZ() >= zMin && chunkPos.getEndZ() <= zMax);
 	}
 	
+	/**
+	 * Like isInChunk(), but also checks which sections of the chunk the spheroid reaches into
+	 * Sections outside the returned range never contain any blocks of this spheroid
+	 *
+	 * @param chunkPos the chunk
+	 * @param world    the height limits of the world
+	 * @return the sections of the chunk the spheroid touches or null, if it does not touch the chunk at all
+	 */
+	public @Nullable SectionRange getTouchedSections(@NotNull ChunkPos chunkPos, @NotNull HeightLimitView world) {
+		if (!isInChunk(chunkPos)) {
+			return null;
+		}
+		// with a block of margin for blocks right outside the radius, like floors
+		int reach = (int) Math.ceil(this.radius) + 1;
+		int minY = Math.max(this.position.getY() - reach, world.getBottomY());
+		int maxY = Math.min(this.position.getY() + reach, world.getTopY() - 1);
+		if (minY > maxY) {
+			return null;
+		}
+		return new SectionRange(world.getSectionIndex(minY), world.getSectionIndex(maxY));
+	}
+	
+	/**
+	 * How far this spheroid reaches up and down from its center in the column at x, z
+	 * Calculated from its radius, without having to look at any generated chunk
+	 *
+	 * @return the max |dy| of the blocks of the spheroid in that column or -1, if it does not reach into it
+	 */
+	public int getColumnHalfHeight(int x, int z) {
+		int dx = x - this.position.getX();
+		int dz = z - this.position.getZ();
+		return Support.getColumnHalfHeight(dx * dx + dz * dz, this.radius);
+	}
+	
+	/**
+	 * Spheroids whose surface can be calculated from their radius alone override this:
+	 * they fill every block inside their radius with blocks that are neither air nor fluids,
+	 * except for an optional cave of air in their center, with its floor right below its lowest blocks
+	 *
+	 * @return the radius of the cave, a negative value if there is none or NaN, if the spheroid can not be described that way
+	 */
+	protected float getAnalyticCaveRadius() {
+		return Float.NaN;
+	}
+	
+	/**
+	 * If the top, bottom and cave floor blocks of this spheroid can be calculated
+	 * using getAnalyticTopY(), getAnalyticBottomY() and getAnalyticCaveBottomY() instead of searching the world for them
+	 */
+	public boolean hasAnalyticSurface() {
+		return !Float.isNaN(getAnalyticCaveRadius());
+	}
+	
+	/**
+	 * Only valid if hasAnalyticSurface()
+	 * Same as the first non-air block searching down from y + getRadius() to y + 1 in that column
+	 *
+	 * @return the y of the top block of this spheroid in the column at x, z or SpheroidSurface.NONE, if there is none
+	 */
+	public int getAnalyticTopY(int x, int z) {
+		int halfHeight = getColumnHalfHeight(x, z);
+		return halfHeight < 1 ? SpheroidSurface.NONE : this.position.getY() + halfHeight;
+	}
+	
+	/**
+	 * Only valid if hasAnalyticSurface()
+	 * Same as the first non-air block searching up from y - getRadius() to y - 1 in that column
+	 *
+	 * @return the y of the bottom block of this spheroid in the column at x, z or SpheroidSurface.NONE, if there is none
+	 */
+	public int getAnalyticBottomY(int x, int z) {
+		int halfHeight = getColumnHalfHeight(x, z);
+		return halfHeight < 1 ? SpheroidSurface.NONE : this.position.getY() - halfHeight;
+	}
+	
+	/**
+	 * Only valid if hasAnalyticSurface()
+	 * Same as the block below the first air or fluid block above the shell, searching up from y - getRadius() to y - 1 in that column
+	 *
+	 * @return the y of the floor of the cave of this spheroid in the column at x, z or SpheroidSurface.NONE, if there is none
+	 */
+	public int getAnalyticCaveBottomY(int x, int z) {
+		float caveRadius = getAnalyticCaveRadius();
+		if (caveRadius < 0) {
+			return SpheroidSurface.NONE;
+		}
+		int dx = x - this.position.getX();
+		int dz = z - this.position.getZ();
+		int caveHalfHeight = Support.getColumnHalfHeight(dx * dx + dz * dz, caveRadius);
+		return caveHalfHeight < 1 ? SpheroidSurface.NONE : this.position.getY() - caveHalfHeight - 1;
+	}
+	
+	/**
+	 * @return true if none of the block states is air or a fluid. Nulls are skipped
+	 */
+	protected static boolean areSolid(@Nullable BlockState... blockStates) {
+		return blockStates == null || areSolid(Arrays.asList(blockStates));
+	}
+	
+	/**
+	 * @return true if none of the block states is air or a fluid. Nulls are skipped
+	 */
+	protected static boolean areSolid(@Nullable Collection<BlockState> blockStates) {
+		if (blockStates != null) {
+			for (BlockState blockState : blockStates) {
+				if (blockState != null && (blockState.isAir() || !blockState.getFluidState().isEmpty())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes the blocks of this spheroid in the column at x, z into a column sample of the chunk generator
+	 * Column samples are used for heightmaps, placing structures and spawning, which only tell solid blocks,
+	 * fluids and air apart. So solid blocks are all sampled as COLUMN_SAMPLE_SOLID.
+	 * By default, the whole column is solid, plus the cave of spheroids with an analytic surface.
+	 * Spheroids with other caves or fluids inside override this
+	 *
+	 * @param states  the sample, states[y - bottomY]. Blocks outside of it are skipped
+	 * @param bottomY the y of the first entry of states
+	 */
+	public void sampleColumn(int x, int z, BlockState @NotNull [] states, int bottomY) {
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		float caveRadius = getAnalyticCaveRadius();
+		if (caveRadius >= 0) {
+			sampleBand(x, z, caveRadius, Blocks.CAVE_AIR.getDefaultState(), states, bottomY);
+		}
+	}
+	
+	/**
+	 * Samples all blocks of the column at x, z with a rounded distance of at most bandRadius to the center as the given state
+	 * Bands further in have to be sampled after the ones further out, like with SpheroidShape
+	 */
+	protected void sampleBand(int x, int z, float bandRadius, @NotNull BlockState state, BlockState @NotNull [] states, int bottomY) {
+		sampleBand(x, z, bandRadius, state, states, bottomY, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Same as sampleBand(), but only up to maxY (inclusive)
+	 */
+	protected void sampleBand(int x, int z, float bandRadius, @NotNull BlockState state, BlockState @NotNull [] states, int bottomY, int maxY) {
+		int dx = x - this.position.getX();
+		int dz = z - this.position.getZ();
+		int halfHeight = Support.getColumnHalfHeight(dx * dx + dz * dz, bandRadius);
+		if (halfHeight < 0) {
+			return;
+		}
+		int from = Math.max(this.position.getY() - halfHeight, bottomY);
+		int to = Math.min(Math.min(this.position.getY() + halfHeight, maxY), bottomY + states.length - 1);
+		for (int y = from; y <= to; y++) {
+			states[y - bottomY] = state;
+		}
+	}
+	
+	/**
+	 * The highest block of this spheroid in the column at x, z that matches the predicate, like the ones of heightmaps
+	 *
+	 * @return the y of that block or SpheroidSurface.NONE, if there is none
+	 */
+	public int getColumnTopY(int x, int z, @NotNull Predicate<BlockState> predicate) {
+		int halfHeight = getColumnHalfHeight(x, z);
+		if (halfHeight < 0) {
+			return SpheroidSurface.NONE;
+		}
+		int bottomY = this.position.getY() - halfHeight;
+		BlockState[] states = new BlockState[2 * halfHeight + 1];
+		sampleColumn(x, z, states, bottomY);
+		for (int i = states.length - 1; i >= 0; i--) {
+			if (states[i] != null && predicate.test(states[i])) {
+				return bottomY + i;
+			}
+		}
+		return SpheroidSurface.NONE;
+	}
+	
 	public boolean isCenterInChunk(@NotNull ChunkPos chunkPos) {
 		return (this.getPosition().getX() >= chunkPos.getStartX()
 				&& this.getPosition().getX() <= chunkPos.getStartX() + 15
@@ -94,51 +356,100 @@ public abstract class Spheroid implements Serializable {
 	
 	public void decorate(StructureWorldAccess world, BlockPos origin, Random random) {
 		if (this.decorators.size() > 0) {
+			ChunkPos chunkPos = new ChunkPos(origin);
+			RegionClippingWriter writer = new RegionClippingWriter(world);
 			for (SpheroidDecorator decorator : this.decorators) {
 				StarrySkies.log(Level.DEBUG, "Decorator: " + decorator.getClass());
 				try {
-					decorator.decorate(world, new ChunkPos(origin), this, random);
+					decorator.decorate(world, writer, chunkPos, this, random);
 				} catch (RuntimeException e) {
-					// Are we asking a region for a chunk out of bounds? ಠ_ಠ
+					// blocks out of bounds are held back by the writer. Anything ending up here is a bug
+					StarrySkies.log(WARN, "Decorator " + decorator.getClass() + " failed decorating spheroid " + this.getDescription() + "\nException: " + e);
 				}
 				StarrySkies.log(Level.DEBUG, "Decorator finished");
 			}
+			surfaces.remove(chunkPos.toLong());
 		}
 	}
 	
-	protected boolean isTopBlock(long d, double x, double y, double z) {
+	protected boolean isTopBlock(long d, int x, int y, int z) {
 		if (d > this.radius - 1) {
-			long dist2 = Math.round(Support.getDistance(this.getPosition().getX(), this.getPosition().getY(), this.getPosition().getZ(), x, y + 1, z));
+			long dist2 = Support.getRoundedDistance(x - this.getPosition().getX(), y + 1 - this.getPosition().getY(), z - this.getPosition().getZ());
 			return dist2 > this.radius;
 		} else {
 			return false;
 		}
 	}
 	
-	protected boolean isBottomBlock(long d, double x, double y, double z) {
+	protected boolean isBottomBlock(long d, int x, int y, int z) {
 		if (d > this.radius - 1) {
-			long dist2 = Math.round(Support.getDistance(this.getPosition().getX(), this.getPosition().getY(), this.getPosition().getZ(), x, y - 1, z));
+			long dist2 = Support.getRoundedDistance(x - this.getPosition().getX(), y - 1 - this.getPosition().getY(), z - this.getPosition().getZ());
 			return dist2 > this.radius;
 		} else {
 			return false;
 		}
 	}
 	
-	protected boolean isAboveCaveFloorBlock(long d, double x, double y, double z, float shellRadius) {
-		int distance1 = (int) Math.round(Support.getDistance(this.getPosition().getX(), this.getPosition().getY(), this.getPosition().getZ(), x, y - 1, z));
+	protected boolean isAboveCaveFloorBlock(long d, int x, int y, int z, float shellRadius) {
+		int distance1 = Support.getRoundedDistance(x - this.getPosition().getX(), y - 1 - this.getPosition().getY(), z - this.getPosition().getZ());
 		return d == (this.radius - shellRadius) && distance1 > (this.radius - shellRadius);
 	}
 	
+	/**
+	 * The positions the structure spheroids place their rooms at: every 10 blocks, as long as the rounded
+	 * distance to the center is less than maxDistance. In the same x, y, z order as going through the spheroid block by block
+	 */
+	protected @NotNull List<BlockPos> getRoomPositions(@NotNull ChunkPos chunkPos, float maxDistance) {
+		int x = this.getPosition().getX();
+		int y = this.getPosition().getY();
+		int z = this.getPosition().getZ();
+		
+		List<BlockPos> roomPositions = new ArrayList<>();
+		int ceiledRadius = (int) Math.ceil(this.radius);
+		int maxX = Math.min(chunkPos.getEndX(), x + ceiledRadius);
+		int maxZ = Math.min(chunkPos.getEndZ(), z + ceiledRadius);
+		for (int x2 = Math.max(chunkPos.getStartX(), x - ceiledRadius); x2 <= maxX; x2++) {
+			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
+				for (int z2 = Math.max(chunkPos.getStartZ(), z - ceiledRadius); z2 <= maxZ; z2++) {
+					if (y2 % 10 == (y + 9) % 10 && x2 % 10 == x % 10 && z2 % 10 == z % 10) {
+						long d = Support.getRoundedDistance(x2 - x, y2 - y, z2 - z);
+						if (d <= this.radius && d < maxDistance) {
+							roomPositions.add(new BlockPos(x2, y2, z2));
+						}
+					}
+				}
+			}
+		}
+		return roomPositions;
+	}
+	
 	protected void placeCenterChestWithLootTable(Chunk chunk, BlockPos blockPos, Identifier lootTable, Random random, boolean waterLogged) {
-		BlockState chestBlockState;
+		BlockState chestBlockState = getCenterChestBlockState(waterLogged);
+		chunk.setBlockState(blockPos, chestBlockState, false);
+		placeCenterChestBlockEntity(chunk, blockPos, chestBlockState, lootTable, random);
+	}
+	
+	/**
+	 * Same as placeCenterChestWithLootTable(), but while the chunk is being written into by a ChunkSectionWriter
+	 */
+	protected void placeCenterChestWithLootTable(ChunkSectionWriter writer, Chunk chunk, BlockPos blockPos, Identifier lootTable, Random random, boolean waterLogged) {
+		BlockState chestBlockState = getCenterChestBlockState(waterLogged);
+		writer.setBlockState(blockPos, chestBlockState);
+		placeCenterChestBlockEntity(chunk, blockPos, chestBlockState, lootTable, random);
+	}
+	
+	private BlockState getCenterChestBlockState(boolean waterLogged) {
 		if (waterLogged) {
-			chestBlockState = Blocks.CHEST.getDefaultState().with(ChestBlock.WATERLOGGED, true);
+			return Blocks.CHEST.getDefaultState().with(ChestBlock.WATERLOGGED, true);
 		} else {
-			chestBlockState = Blocks.CHEST.getDefaultState();
+			return Blocks.CHEST.getDefaultState();
 		}
-		chunk.setBlockState(blockPos, chestBlockState, false);
-		chunk.setBlockEntity(new ChestBlockEntity(blockPos, chestBlockState));
-		LootableContainerBlockEntity.setLootTable(chunk, random, blockPos, lootTable);
+	}
+	
+	private void placeCenterChestBlockEntity(Chunk chunk, BlockPos blockPos, BlockState chestBlockState, Identifier lootTable, Random random) {
+		ChestBlockEntity chestBlockEntity = new ChestBlockEntity(blockPos, chestBlockState);
+		chestBlockEntity.setLootTable(lootTable, random.nextLong());
+		setBlockEntity(chunk, chestBlockEntity);
 	}
 	
 	public void populateEntities(ChunkPos chunkPos, ServerWorldAccess chunkRegion, Random random) {
@@ -186,9 +497,18 @@ public abstract class Spheroid implements Serializable {
 		}
 	}
 	
-	protected void placeSpawner(@NotNull WorldAccess worldAccess, BlockPos blockPos, EntityType entityType) {
-		worldAccess.setBlockState(blockPos, Blocks.SPAWNER.getDefaultState(), 3);
-		BlockEntity blockEntity = worldAccess.getBlockEntity(blockPos);
+	/**
+	 * Spawners get their entity right away, so they can not be placed later on like the other decoration blocks
+	 * and are dropped when out of bounds of the writer. Flushes the buffer first, so its blocks do not replace the spawner
+	 */
+	protected void placeSpawner(@NotNull DecorationWriteBuffer buffer, BlockPos blockPos, EntityType entityType) {
+		buffer.flush();
+		RegionClippingWriter writer = buffer.getWriter();
+		if (!writer.canPlaceNow(blockPos)) {
+			return;
+		}
+		writer.getWorld().setBlockState(blockPos, Blocks.SPAWNER.getDefaultState(), 3);
+		BlockEntity blockEntity = writer.getWorld().getBlockEntity(blockPos);
 		if (blockEntity instanceof MobSpawnerBlockEntity) {
 			((MobSpawnerBlockEntity) blockEntity).getLogic().setEntityId(entityType);
 		}
@@ -198,6 +518,25 @@ public abstract class Spheroid implements Serializable {
 		return this.template;
 	}
 	
+	/**
+	 * A range of section indices of a chunk, both inclusive
+	 */
+	public static class SectionRange {
+		
+		public final int minSectionIndex;
+		public final int maxSectionIndex;
+		
+		public SectionRange(int minSectionIndex, int maxSectionIndex) {
+			this.minSectionIndex = minSectionIndex;
+			this.maxSectionIndex = maxSectionIndex;
+		}
+		
+		public boolean contains(int sectionIndex) {
+			return sectionIndex >= minSectionIndex && sectionIndex <= maxSectionIndex;
+		}
+		
+	}
+	
 	public static abstract class Template {
 		
 		protected final Identifier id;
@@ -219,6 +558,14 @@ public abstract class Spheroid implements Serializable {
 			return id;
 		}
 		
+		public int getMinSize() {
+			return minSize;
+		}
+		
+		public int getMaxSize() {
+			return maxSize;
+		}
+		
 		protected static float randomBetween(Random random, int min, int max) {
 			return min + random.nextFloat() * (max - min);
 		}
@@ -285,7 +632,31 @@ public abstract class Spheroid implements Serializable {
 			this.spawns = spawns;
 		}
 		
-		public abstract Spheroid generate(ChunkRandom systemRandom);
+		/**
+		 * The radius a spheroid of this template gets generated with, when generated using that random.
+		 * That is the first thing drawn from it, so the spheroid can be placed without generating it
+		 */
+		public float getRandomRadius(Random random) {
+			return randomBetween(random, minSize, maxSize);
+		}
+		
+		/**
+		 * Generates a spheroid of this template. Always draws the radius first, see getRandomRadius()
+		 */
+		public Spheroid generate(ChunkRandom random) {
+			return generate(random, getRandomRadius(random));
+		}
+		
+		protected abstract Spheroid generate(ChunkRandom random, float radius);
+		
+		/**
+		 * If every spheroid of this template, no matter its random draws, fills every block inside its radius
+		 * with blocks that are neither air nor fluids. Their column samples and heights can then be calculated
+		 * from their position and radius alone, without generating them
+		 */
+		public boolean isSolidThroughout() {
+			return false;
+		}
 		
 	}
 	
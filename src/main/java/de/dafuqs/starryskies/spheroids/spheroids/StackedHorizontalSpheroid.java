@@ -3,15 +3,15 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.entity.EntityType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.Pair;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.ChunkRandom;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
@@ -23,10 +23,10 @@ public class StackedHorizontalSpheroid extends Spheroid {
 	
 	private final List<BlockState> stripesBlockStates;
 	
-	public StackedHorizontalSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public StackedHorizontalSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                                 List<BlockState> stripesBlockStates) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.stripesBlockStates = stripesBlockStates;
 	}
 	
@@ -45,8 +45,13 @@ public class StackedHorizontalSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public StackedHorizontalSpheroid generate(ChunkRandom random) {
-			return new StackedHorizontalSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, stripesBlockStates);
+		public boolean isSolidThroughout() {
+			return areSolid(this.stripesBlockStates);
+		}
+		
+		@Override
+		public StackedHorizontalSpheroid generate(ChunkRandom random, float radius) {
+			return new StackedHorizontalSpheroid(this, radius, selectDecorators(random), selectSpawns(random), stripesBlockStates);
 		}
 		
 	}
@@ -61,36 +66,25 @@ public class StackedHorizontalSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
-		int x = this.getPosition().getX();
+	protected float getAnalyticCaveRadius() {
+		return areSolid(this.stripesBlockStates) ? -1 : Float.NaN;
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int y = this.getPosition().getY();
-		int z = this.getPosition().getZ();
 		
-		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
 		int ceiledRadius = (int) Math.ceil(this.radius);
-		for (float y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-			
+		BlockState[] layerBlockStates = new BlockState[ceiledRadius * 2 + 1];
+		for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
 			float currentSpheroidHeight = y - y2 + ceiledRadius;
 			int currentBlockStateIndex = (int) ((currentSpheroidHeight * stripesBlockStates.size() - 1) / (ceiledRadius * 2));
-			
-			BlockState currentBlockState = this.stripesBlockStates.get(currentBlockStateIndex);
-			
-			for (float x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= Math.min(chunkX * 16 + 15, x + ceiledRadius); x2++) {
-				for (float z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= Math.min(chunkZ * 16 + 15, z + ceiledRadius); z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					if (d > this.radius) {
-						continue;
-					}
-					
-					chunk.setBlockState(currBlockPos, currentBlockState, false);
-				}
-			}
+			layerBlockStates[y2 - y + ceiledRadius] = this.stripesBlockStates.get(currentBlockStateIndex);
 		}
+		
+		new SpheroidShape()
+				.positionalBand(this.radius, (x2, y2, z2) -> layerBlockStates[y2 - y + ceiledRadius])
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
 	}
 	
 }
\ No newline at end of file
@@ -3,7 +3,11 @@ package de.dafuqs.starryskies.spheroids.spheroids;
 import com.google.gson.JsonObject;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.dafuqs.starryskies.Support;
+import de.dafuqs.starryskies.spheroids.ChunkSectionWriter;
+import de.dafuqs.starryskies.spheroids.DecorationWriteBuffer;
+import de.dafuqs.starryskies.spheroids.RegionClippingWriter;
 import de.dafuqs.starryskies.spheroids.SpheroidDecorator;
+import de.dafuqs.starryskies.spheroids.SpheroidShape;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.EndPortalFrameBlock;
@@ -22,8 +26,8 @@ import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.WorldAccess;
 import net.minecraft.world.chunk.Chunk;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class StrongholdSpheroid extends Spheroid {
 	
@@ -42,13 +46,13 @@ public class StrongholdSpheroid extends Spheroid {
 	private final Identifier LIBRARY_CHEST = LootTables.STRONGHOLD_LIBRARY_CHEST;
 	
 	private final int shellRadius;
-	private BlockPos portalPosition;
-	private final ArrayList<BlockPos> interiorDecoratorPositions = new ArrayList<>();
+	private volatile BlockPos portalPosition;
+	private final List<BlockPos> interiorDecoratorPositions = new CopyOnWriteArrayList<>();
 	
-	public StrongholdSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns, ChunkRandom random,
+	public StrongholdSpheroid(Spheroid.Template template, float radius, List<SpheroidDecorator> decorators, List<Pair<EntityType, Integer>> spawns,
 	                          int shellRadius) {
 		
-		super(template, radius, decorators, spawns, random);
+		super(template, radius, decorators, spawns);
 		this.shellRadius = shellRadius;
 	}
 	
@@ -66,9 +70,9 @@ public class StrongholdSpheroid extends Spheroid {
 		}
 		
 		@Override
-		public StrongholdSpheroid generate(ChunkRandom random) {
+		public StrongholdSpheroid generate(ChunkRandom random, float radius) {
 			int shellRadius = Support.getRandomBetween(random, minShellRadius, maxShellRadius);
-			return new StrongholdSpheroid(this, randomBetween(random, minSize, maxSize), selectDecorators(random), selectSpawns(random), random, shellRadius);
+			return new StrongholdSpheroid(this, radius, selectDecorators(random), selectSpawns(random), shellRadius);
 		}
 		
 	}
@@ -83,64 +87,55 @@ public class StrongholdSpheroid extends Spheroid {
 	}
 	
 	@Override
-	public void generate(Chunk chunk) {
-		int chunkX = chunk.getPos().x;
-		int chunkZ = chunk.getPos().z;
-		
+	public void sampleColumn(int x, int z, BlockState[] states, int bottomY) {
+		// the walls and floors between the rooms are left out
+		sampleBand(x, z, this.radius, COLUMN_SAMPLE_SOLID, states, bottomY);
+		sampleBand(x, z, this.radius - this.shellRadius, Blocks.CAVE_AIR.getDefaultState(), states, bottomY);
+	}
+	
+	@Override
+	public void generate(ChunkSectionWriter writer, Chunk chunk) {
 		int x = this.getPosition().getX();
 		int y = this.getPosition().getY();
 		int z = this.getPosition().getZ();
 		
 		float shellDistance = this.radius - this.shellRadius;
 		
-		random.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
-		int ceiledRadius = (int) Math.ceil(this.radius);
-		int maxX = Math.min(chunkX * 16 + 15, x + ceiledRadius);
-		int maxZ = Math.min(chunkZ * 16 + 15, z + ceiledRadius);
-		for (int x2 = Math.max(chunkX * 16, x - ceiledRadius); x2 <= maxX; x2++) {
-			for (int y2 = y - ceiledRadius; y2 <= y + ceiledRadius; y2++) {
-				for (int z2 = Math.max(chunkZ * 16, z - ceiledRadius); z2 <= maxZ; z2++) {
-					long d = Math.round(Support.getDistance(x, y, z, x2, y2, z2));
-					if (d > this.radius) {
-						continue;
-					}
-					
-					BlockPos currBlockPos = new BlockPos(x2, y2, z2);
-					
-					if (d <= shellDistance) {
-						if (y2 % 10 == (this.position.getY() + 8) % 10 || x2 % 10 == (this.position.getX() + 5) % 10 || z2 % 10 == (this.position.getZ() + 5) % 10) {
-							if ((y2 - y) % 6 == 0 && ((x2 - x) % 4 == 2 || (z2 - z) % 4 == 0)) {
-								chunk.setBlockState(currBlockPos, MOSSY_STONE_BRICKS, false);
-							} else {
-								chunk.setBlockState(currBlockPos, STONE_BRICKS, false);
-							}
+		new SpheroidShape()
+				.positionalBand(shellDistance, (x2, y2, z2) -> {
+					if (y2 % 10 == (this.position.getY() + 8) % 10 || x2 % 10 == (this.position.getX() + 5) % 10 || z2 % 10 == (this.position.getZ() + 5) % 10) {
+						if ((y2 - y) % 6 == 0 && ((x2 - x) % 4 == 2 || (z2 - z) % 4 == 0)) {
+							return MOSSY_STONE_BRICKS;
 						} else {
-							// AIR
+							return STONE_BRICKS;
 						}
 					} else {
-						if (y2 % 2 == 0) {
-							if (x2 % 5 == 0) {
-								chunk.setBlockState(currBlockPos, INFESTED_STONE_BRICKS, false);
-							} else {
-								chunk.setBlockState(currBlockPos, STONE_BRICKS, false);
-							}
+						return null; // AIR
+					}
+				})
+				.positionalBand(this.radius, (x2, y2, z2) -> {
+					if (y2 % 2 == 0) {
+						if (x2 % 5 == 0) {
+							return INFESTED_STONE_BRICKS;
 						} else {
-							if (x2 % 2 == 0 && z2 % 2 == 0) {
-								chunk.setBlockState(currBlockPos, MOSSY_STONE_BRICKS, false);
-							} else {
-								chunk.setBlockState(currBlockPos, STONE_BRICKS, false);
-							}
+							return STONE_BRICKS;
 						}
-					}
-					if (d < this.getRadius() - 9 && (y2 % 10 == (this.position.getY() + 9) % 10 && x2 % 10 == (this.position.getX()) % 10 && z2 % 10 == (this.position.getZ()) % 10)) {
-						if (d == 1) {
-							// place end portal in center
-							portalPosition = currBlockPos;
+					} else {
+						if (x2 % 2 == 0 && z2 % 2 == 0) {
+							return MOSSY_STONE_BRICKS;
 						} else {
-							interiorDecoratorPositions.add(currBlockPos);
+							return STONE_BRICKS;
 						}
 					}
-				}
+				})
+				.generate(writer, chunk.getPos(), this.getPosition(), this.radius, null);
+		
+		for (BlockPos roomPosition : getRoomPositions(chunk.getPos(), this.getRadius() - 9)) {
+			if (Support.getRoundedDistance(roomPosition.getX() - x, roomPosition.getY() - y, roomPosition.getZ() - z) == 1) {
+				// place end portal in center
+				portalPosition = roomPosition;
+			} else {
+				interiorDecoratorPositions.add(roomPosition);
 			}
 		}
 	}
@@ -156,33 +151,35 @@ public class StrongholdSpheroid extends Spheroid {
 	public void decorate(StructureWorldAccess world, BlockPos origin, Random random) {
 		ChunkPos thisChunkPos = new ChunkPos(this.position);
 		ChunkPos originChunkPos = new ChunkPos(origin);
+		DecorationWriteBuffer buffer = new DecorationWriteBuffer(new RegionClippingWriter(world));
 		
 		if (portalPosition != null && thisChunkPos.equals(originChunkPos)) {
-			placeEndPortal(world, portalPosition.up());
+			placeEndPortal(buffer, portalPosition.up(), random);
 		}
 		
 		for (BlockPos interiorDecoratorPosition : interiorDecoratorPositions) {
 			if (Support.isBlockPosInChunkPos(originChunkPos, interiorDecoratorPosition)) {
 				int randomStructure = random.nextInt(5);
 				switch (randomStructure) {
-					case 0 -> placeLibrary(world, interiorDecoratorPosition);
-					case 1 -> placeCorridor(world, interiorDecoratorPosition);
-					case 2 -> placeCrossing(world, interiorDecoratorPosition);
-					case 3 -> placePrison(world, interiorDecoratorPosition);
-					default -> placeFullCube(world, interiorDecoratorPosition);
+					case 0 -> placeLibrary(world, buffer, interiorDecoratorPosition, random);
+					case 1 -> placeCorridor(world, buffer, interiorDecoratorPosition, random);
+					case 2 -> placeCrossing(world, buffer, interiorDecoratorPosition, random);
+					case 3 -> placePrison(buffer, interiorDecoratorPosition);
+					default -> placeFullCube(buffer, interiorDecoratorPosition);
 				}
 			}
 		}
+		buffer.flush();
 	}
 	
-	private void placeEndPortal(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeEndPortal(DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -3; x2 <= 3; x2++) {
 			for (int z2 = -3; z2 <= 3; z2++) {
 				
 				BlockPos destinationBlockPos = blockPos.add(x2, 0, z2);
 				if ((Math.abs(x2) == 3 || Math.abs(z2) == 3)) {
 					if (!(Math.abs(x2) == 3 && Math.abs(z2) == 3)) {
-						worldAccess.setBlockState(destinationBlockPos.down(), STONE_BRICKS, 3);
+						buffer.setBlockState(destinationBlockPos.down(), STONE_BRICKS);
 					}
 				} else if (!(Math.abs(x2) == 2 && Math.abs(z2) == 2)) {
 					if ((Math.abs(x2) == 2 || Math.abs(z2) == 2)) {
@@ -199,91 +196,93 @@ public class StrongholdSpheroid extends Spheroid {
 						}
 						
 						if (random.nextBoolean()) {
-							worldAccess.setBlockState(destinationBlockPos, END_PORTAL_FRAME.with(EndPortalFrameBlock.FACING, direction), 3);
+							buffer.setBlockState(destinationBlockPos, END_PORTAL_FRAME.with(EndPortalFrameBlock.FACING, direction));
 						} else {
-							worldAccess.setBlockState(destinationBlockPos, END_PORTAL_FRAME.with(EndPortalFrameBlock.FACING, direction).with(EndPortalFrameBlock.EYE, true), 3);
+							buffer.setBlockState(destinationBlockPos, END_PORTAL_FRAME.with(EndPortalFrameBlock.FACING, direction).with(EndPortalFrameBlock.EYE, true));
 						}
-						worldAccess.setBlockState(destinationBlockPos.down(), STONE_BRICKS, 3);
-						worldAccess.setBlockState(destinationBlockPos.down(2), STONE_BRICKS, 3);
+						buffer.setBlockState(destinationBlockPos.down(), STONE_BRICKS);
+						buffer.setBlockState(destinationBlockPos.down(2), STONE_BRICKS);
 					} else {
-						worldAccess.setBlockState(destinationBlockPos, AIR, 3);
-						worldAccess.setBlockState(destinationBlockPos.down(), AIR, 3);
-						worldAccess.setBlockState(destinationBlockPos.down(2), LAVA, 3);
-						worldAccess.setBlockState(destinationBlockPos.down(3), STONE_BRICKS, 3);
+						buffer.setBlockState(destinationBlockPos, AIR);
+						buffer.setBlockState(destinationBlockPos.down(), AIR);
+						buffer.setBlockState(destinationBlockPos.down(2), LAVA);
+						buffer.setBlockState(destinationBlockPos.down(3), STONE_BRICKS);
 					}
-					worldAccess.setBlockState(destinationBlockPos.up(), AIR, 3);
-					worldAccess.setBlockState(destinationBlockPos.up(2), AIR, 3);
-					worldAccess.setBlockState(destinationBlockPos.up(3), AIR, 3);
+					buffer.setBlockState(destinationBlockPos.up(), AIR);
+					buffer.setBlockState(destinationBlockPos.up(2), AIR);
+					buffer.setBlockState(destinationBlockPos.up(3), AIR);
 				} else {
-					placeSpawner(worldAccess, destinationBlockPos.down(2), EntityType.SILVERFISH);
+					placeSpawner(buffer, destinationBlockPos.down(2), EntityType.SILVERFISH);
 				}
 			}
 		}
 	}
 	
-	private void placeFullCube(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeFullCube(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, INFESTED_STONE_BRICKS, 3);
+					buffer.setBlockState(destinationBlockPos, INFESTED_STONE_BRICKS);
 				}
 			}
 		}
 	}
 	
-	private void placeLibrary(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeLibrary(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 4; y2++) {
 				for (int z2 = -4; z2 < 5; z2++) {
 					if (Math.abs(x2) == 4 || Math.abs(z2) == 4 || (Math.abs(x2 % 2) == 1 && Math.abs(z2 % 2) == 1)) {
 						BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
 						if (y2 == 3) {
-							worldAccess.setBlockState(destinationBlockPos, OAK_PLANKS, 3);
+							buffer.setBlockState(destinationBlockPos, OAK_PLANKS);
 						} else {
-							worldAccess.setBlockState(destinationBlockPos, BOOKSHELF, 3);
+							buffer.setBlockState(destinationBlockPos, BOOKSHELF);
 						}
 					}
 				}
 			}
 		}
+		buffer.flush();
 		placeCenterChestWithLootTable(worldAccess.getChunk(blockPos), blockPos, LIBRARY_CHEST, random, false);
 	}
 	
-	private void placePrison(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placePrison(DecorationWriteBuffer buffer, BlockPos blockPos) {
 		for (int x2 = -4; x2 < 5; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				BlockPos destinationBlockPos = blockPos.add(x2, y2, 0);
-				worldAccess.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.EAST, true).with(PaneBlock.WEST, true), 3);
+				buffer.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.EAST, true).with(PaneBlock.WEST, true));
 			}
 		}
 		for (int y2 = 0; y2 < 9; y2++) {
 			for (int z2 = -4; z2 < 5; z2++) {
 				BlockPos destinationBlockPos = blockPos.add(0, y2, z2);
-				worldAccess.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.NORTH, true).with(PaneBlock.SOUTH, true), 3);
+				buffer.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.NORTH, true).with(PaneBlock.SOUTH, true));
 			}
 		}
 		
 		for (int y2 = 0; y2 < 9; y2++) {
 			BlockPos destinationBlockPos = blockPos.add(0, y2, 0);
-			worldAccess.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.EAST, true).with(PaneBlock.WEST, true).with(PaneBlock.NORTH, true).with(PaneBlock.SOUTH, true), 3);
+			buffer.setBlockState(destinationBlockPos, IRON_BARS.with(PaneBlock.EAST, true).with(PaneBlock.WEST, true).with(PaneBlock.NORTH, true).with(PaneBlock.SOUTH, true));
 		}
 	}
 	
-	private void placeCrossing(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeCrossing(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -1; x2 < 2; x2++) {
 			for (int y2 = 0; y2 < 3; y2++) {
 				for (int z2 = -1; z2 < 2; z2++) {
 					BlockPos destinationBlockPos = blockPos.add(x2, y2, z2);
-					worldAccess.setBlockState(destinationBlockPos, MOSSY_STONE_BRICKS, 3);
+					buffer.setBlockState(destinationBlockPos, MOSSY_STONE_BRICKS);
 				}
 			}
 		}
 		
+		buffer.flush();
 		placeCenterChestWithLootTable(worldAccess.getChunk(blockPos), blockPos, CROSSING_CHEST, random, false);
 	}
 	
-	private void placeCorridor(WorldAccess worldAccess, BlockPos blockPos) {
+	private void placeCorridor(WorldAccess worldAccess, DecorationWriteBuffer buffer, BlockPos blockPos, Random random) {
 		for (int x2 = -1; x2 < 2; x2++) {
 			for (int y2 = 0; y2 < 9; y2++) {
 				for (int z2 = -1; z2 < 2; z2++) {
@@ -302,11 +301,12 @@ public class StrongholdSpheroid extends Spheroid {
 					} else {
 						blockState = STONE_BRICKS;
 					}
-					worldAccess.setBlockState(destinationBlockPos, blockState, 3);
+					buffer.setBlockState(destinationBlockPos, blockState);
 				}
 			}
 		}
 		
+		buffer.flush();
 		placeCenterChestWithLootTable(worldAccess.getChunk(blockPos), blockPos.up(), CORRIDOR_CHEST, random, false);
 		
 	}